@@ -0,0 +1,247 @@
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects parameter sets for one sql template and writes them with {@link PreparedStatement#executeBatch()}
+ * inside a single transaction.
+ * <br>
+ * How to use:
+ * <pre>
+ *   try (BatchWriter writer = new BatchWriter(databaseUtil.getPool(), "UPDATE stats SET kills=? WHERE id=?", 500, 2, TimeUnit.SECONDS)) {
+ *       for (PlayerStats stats : allStats) {
+ *           writer.add(stats.getKills(), stats.getId())
+ *                   .thenAccept(updated -> { if (updated == 0) insertMissing(stats); });
+ *       }
+ *   } // closing flushes the remaining rows
+ * </pre>
+ * <br>
+ * A flush happens on the calling thread once the batch size is reached and on a background thread every flush
+ * interval, so no row waits longer than the interval. Flushes never overlap, so batches are committed in the order
+ * their rows were added. Every added row gets a future that is completed with its
+ * update count ({@link java.sql.Statement#SUCCESS_NO_INFO} if the driver does not report one) after the commit,
+ * or exceptionally if the transaction was rolled back.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class BatchWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("BatchWriter");
+    private static final AtomicInteger WRITER_COUNTER = new AtomicInteger();
+
+    private final Sink sink;
+    private final String sql;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+
+    private final Object lock = new Object();
+    // held for a whole flush, so batches are committed in the order their rows were added
+    private final Object flushLock = new Object();
+    private List<Object[]> pendingRows = new ArrayList<>();
+    private List<CompletableFuture<Integer>> pendingResults = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * @param dataSource    the source connections are borrowed from
+     * @param sql           the sql template every row is executed with
+     * @param batchSize     count of rows that triggers a flush
+     * @param flushInterval maximum time a row waits before it is flushed, 0 disables timed flushes
+     * @param unit          unit of the flush interval
+     */
+    public BatchWriter(DataSource dataSource, String sql, int batchSize, long flushInterval, TimeUnit unit) {
+        this((template, rows, chunkSize) -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return executeBatch(connection, template, rows, chunkSize);
+            }
+        }, sql, batchSize, flushInterval, unit);
+    }
+
+    /**
+     * @param sink          writes every flushed batch, e.g. through the write path of a connectable
+     * @param sql           the sql template every row is executed with
+     * @param batchSize     count of rows that triggers a flush
+     * @param flushInterval maximum time a row waits before it is flushed, 0 disables timed flushes
+     * @param unit          unit of the flush interval
+     */
+    public BatchWriter(Sink sink, String sql, int batchSize, long flushInterval, TimeUnit unit) {
+        this.sink = sink;
+        this.sql = sql;
+        this.batchSize = batchSize;
+        if (flushInterval > 0) {
+            String name = "BatchWriter-" + WRITER_COUNTER.incrementAndGet();
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Adds a row to the current batch
+     *
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return a {@link CompletableFuture} completed with the update count of this row after it was committed,
+     * or exceptionally with a {@link RejectedExecutionException} if the writer has been closed
+     */
+    public CompletableFuture<Integer> add(Object... parameters) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        boolean full;
+        synchronized (lock) {
+            if (closed) {
+                result.completeExceptionally(new RejectedExecutionException("The batch writer has been closed"));
+                return result;
+            }
+            pendingRows.add(parameters);
+            pendingResults.add(result);
+            full = pendingRows.size() >= batchSize;
+        }
+        if (full)
+            flushQuietly();
+        return result;
+    }
+
+    /**
+     * @return count of rows waiting for the next flush
+     */
+    public int getPendingRows() {
+        synchronized (lock) {
+            return pendingRows.size();
+        }
+    }
+
+    /**
+     * Writes every pending row in one transaction
+     *
+     * @return the update count of every flushed row in the order they were added
+     * @throws SQLException if the batch failed, in that case every flushed row was rolled back
+     */
+    public int[] flush() throws SQLException {
+        synchronized (flushLock) {
+            List<Object[]> rows;
+            List<CompletableFuture<Integer>> results;
+            synchronized (lock) {
+                if (pendingRows.isEmpty())
+                    return new int[0];
+                rows = pendingRows;
+                results = pendingResults;
+                pendingRows = new ArrayList<>();
+                pendingResults = new ArrayList<>();
+            }
+            try {
+                int[] counts = sink.write(sql, rows, batchSize);
+                for (int i = 0; i < results.size(); i++) {
+                    results.get(i).complete(counts[i]);
+                }
+                return counts;
+            } catch (SQLException | RuntimeException e) {
+                for (CompletableFuture<Integer> result : results) {
+                    result.completeExceptionally(e);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "There was an error flushing a batch of the following sql statement:\n{0}\n{1}", new Object[]{sql, e.getMessage()});
+        }
+    }
+
+    /**
+     * Stops accepting rows, lets a running timed flush finish and writes the remaining rows
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        // not shutdownNow(), an interrupt makes drivers like H2 close the connection of a running flush
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Executes the given rows with {@link PreparedStatement#addBatch()} in chunks of the given size inside one transaction
+     *
+     * @param connection the connection to use, its auto commit state is restored afterwards
+     * @param sql        the sql template every row is executed with
+     * @param rows       the parameter sets in the order they are inserted into the statement
+     * @param chunkSize  maximum count of rows sent with one {@link PreparedStatement#executeBatch()}
+     * @return the update count of every row in the order of the given rows
+     * @throws SQLException if the batch failed, in that case every row was rolled back
+     */
+    public static int[] executeBatch(Connection connection, String sql, List<Object[]> rows, int chunkSize) throws SQLException {
+        int[] counts = new int[rows.size()];
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int offset = 0;
+            while (offset < rows.size()) {
+                int end = Math.min(rows.size(), offset + chunkSize);
+                for (int row = offset; row < end; row++) {
+                    Object[] parameters = rows.get(row);
+                    for (int i = 0; i < parameters.length; i++) {
+                        ps.setObject(i + 1, parameters[i]);
+                    }
+                    ps.addBatch();
+                }
+                int[] chunk = ps.executeBatch();
+                for (int row = offset; row < end; row++) {
+                    counts[row] = row - offset < chunk.length ? chunk[row - offset] : Statement.SUCCESS_NO_INFO;
+                }
+                offset = end;
+            }
+            connection.commit();
+            return counts;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Writes one batch of rows in a single transaction
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * @param sql       the sql template every row is executed with
+         * @param rows      the parameter sets in the order they are inserted into the statement
+         * @param chunkSize maximum count of rows sent with one {@link PreparedStatement#executeBatch()}
+         * @return the update count of every row in the order of the given rows
+         * @throws SQLException if the batch failed, in that case every row has to be rolled back
+         */
+        int[] write(String sql, List<Object[]> rows, int chunkSize) throws SQLException;
+    }
+
+}
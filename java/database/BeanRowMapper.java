@@ -0,0 +1,274 @@
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the rows of a {@link RowCursor} onto instances of a plain java class.
+ * <br>
+ * How to use:
+ * <pre>
+ *   public class PlayerRow {
+ *       private long id;
+ *       private String email;
+ *       private int coins;
+ *   }
+ *
+ *   List&lt;PlayerRow&gt; players = databaseUtil.queryAs("SELECT id, email, coins FROM players WHERE coins > ?", PlayerRow.class, 100);
+ * </pre>
+ * <br>
+ * Columns are matched to non static fields by their label ignoring case and underscores, so {@code player_id} fills
+ * {@code playerId}. The first time a sql statement is mapped the matching column indexes and a typed binding for
+ * every field are resolved and cached for that sql, every following row is read by index with the primitive
+ * {@link ResultSet} getters and written through {@link MethodHandle}s without boxing. A cached plan is checked against
+ * the column labels of every new {@link ResultSet} and resolved again if they changed, e.g. after an ALTER TABLE.
+ * <br>
+ * The mapped class needs a constructor without parameters, it may be private.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class BeanRowMapper<T> implements RowCursor.RowMapper<T> {
+
+    private static final Map<Class<?>, BeanRowMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Map<String, Field> fields = new HashMap<>();
+    private final Cache<String, Plan> plans = CacheBuilder.newBuilder().maximumSize(256).build();
+    private volatile PlanEntry lastPlan;
+
+    private BeanRowMapper(Class<T> type) {
+        this.type = type;
+        try {
+            Constructor<T> noArgs = type.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a constructor without parameters to be mapped", e);
+        }
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+                    continue;
+                fields.putIfAbsent(normalize(field.getName()), field);
+            }
+        }
+    }
+
+    /**
+     * @param type the class rows are mapped onto
+     * @return the shared mapper of the given class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> of(Class<T> type) {
+        return (BeanRowMapper<T>) MAPPERS.computeIfAbsent(type, BeanRowMapper::new);
+    }
+
+    /**
+     * @return the class rows are mapped onto
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Creates a new instance and fills every field that has a matching column
+     *
+     * @param row a cursor positioned on a row
+     * @return the mapped instance
+     */
+    @Override
+    public T map(RowCursor row) throws SQLException {
+        Binding[] plan = planFor(row.getSql(), row.getResultSet());
+        ResultSet rs = row.getResultSet();
+        try {
+            Object target = (Object) constructor.invokeExact();
+            for (Binding binding : plan) {
+                binding.apply(target, rs);
+            }
+            return type.cast(target);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SQLException("There was an error mapping a row onto " + type.getName(), t);
+        }
+    }
+
+    private Binding[] planFor(String sql, ResultSet rs) throws SQLException {
+        // the columns of a result set never change, so they are only checked once per result set
+        PlanEntry last = lastPlan;
+        if (last != null && last.sql == sql && last.resultSet.get() == rs)
+            return last.plan.bindings;
+        ResultSetMetaData metaData = rs.getMetaData();
+        Plan plan = plans.getIfPresent(sql);
+        if (plan == null || !plan.matches(metaData)) {
+            plan = resolve(metaData);
+            plans.put(sql, plan);
+        }
+        lastPlan = new PlanEntry(sql, rs, plan);
+        return plan.bindings;
+    }
+
+    private Plan resolve(ResultSetMetaData metaData) throws SQLException {
+        List<Binding> bindings = new ArrayList<>();
+        Set<Field> bound = new HashSet<>();
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int column = 1; column <= labels.length; column++) {
+            labels[column - 1] = metaData.getColumnLabel(column);
+            Field field = fields.get(normalize(labels[column - 1]));
+            if (field == null || !bound.add(field))
+                continue;
+            field.setAccessible(true);
+            try {
+                bindings.add(Binding.create(field, MethodHandles.lookup().unreflectSetter(field), column));
+            } catch (IllegalAccessException e) {
+                throw new SQLException("The field " + field.getName() + " of " + type.getName() + " is not writable", e);
+            }
+        }
+        return new Plan(labels, bindings.toArray(new Binding[0]));
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static class Plan {
+
+        private final String[] labels;
+        private final Binding[] bindings;
+
+        private Plan(String[] labels, Binding[] bindings) {
+            this.labels = labels;
+            this.bindings = bindings;
+        }
+
+        private boolean matches(ResultSetMetaData metaData) throws SQLException {
+            if (metaData.getColumnCount() != labels.length)
+                return false;
+            for (int column = 1; column <= labels.length; column++) {
+                if (!labels[column - 1].equals(metaData.getColumnLabel(column)))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static class PlanEntry {
+
+        private final String sql;
+        // weak, so the last mapped result set is not kept alive by the shared mapper
+        private final WeakReference<ResultSet> resultSet;
+        private final Plan plan;
+
+        private PlanEntry(String sql, ResultSet resultSet, Plan plan) {
+            this.sql = sql;
+            this.resultSet = new WeakReference<>(resultSet);
+            this.plan = plan;
+        }
+    }
+
+    /**
+     * Reads one column by index and writes it into one field, specialized per field type so primitives stay unboxed
+     */
+    private static abstract class Binding {
+
+        protected final int column;
+        protected final MethodHandle setter;
+
+        private Binding(int column, MethodHandle setter) {
+            this.column = column;
+            this.setter = setter;
+        }
+
+        abstract void apply(Object target, ResultSet rs) throws Throwable;
+
+        static Binding create(Field field, MethodHandle setter, int column) {
+            Class<?> fieldType = field.getType();
+            if (fieldType == int.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, int.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getInt(this.column));
+                    }
+                };
+            } else if (fieldType == long.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, long.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getLong(this.column));
+                    }
+                };
+            } else if (fieldType == double.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, double.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getDouble(this.column));
+                    }
+                };
+            } else if (fieldType == float.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, float.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getFloat(this.column));
+                    }
+                };
+            } else if (fieldType == boolean.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, boolean.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getBoolean(this.column));
+                    }
+                };
+            } else if (fieldType == short.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, short.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getShort(this.column));
+                    }
+                };
+            } else if (fieldType == byte.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, byte.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getByte(this.column));
+                    }
+                };
+            } else if (fieldType == String.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, String.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        this.setter.invokeExact(target, rs.getString(this.column));
+                    }
+                };
+            } else if (fieldType == UUID.class) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, UUID.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        String value = rs.getString(this.column);
+                        this.setter.invokeExact(target, value == null ? (UUID) null : UUID.fromString(value));
+                    }
+                };
+            } else if (fieldType.isEnum()) {
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, Object.class))) {
+                    @SuppressWarnings({"unchecked", "rawtypes"})
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        String value = rs.getString(this.column);
+                        this.setter.invokeExact(target, value == null ? null : (Object) Enum.valueOf((Class) fieldType, value));
+                    }
+                };
+            } else {
+                Class<?> boxed = MethodType.methodType(fieldType).wrap().returnType();
+                return new Binding(column, setter.asType(MethodType.methodType(void.class, Object.class, Object.class))) {
+                    void apply(Object target, ResultSet rs) throws Throwable {
+                        Object value = rs.getObject(this.column, boxed);
+                        this.setter.invokeExact(target, value);
+                    }
+                };
+            }
+        }
+    }
+
+}
@@ -0,0 +1,353 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads large amounts of rows into one table using the fastest path the database offers.
+ * <br>
+ * How to use:
+ * <pre>
+ *   Iterator&lt;Object[]&gt; rows = importFile.lines().map(line -&gt; line.split(";")).iterator();
+ *   long loaded = BulkLoader.copy().load(connection, "player_stats", Arrays.asList("id", "name", "kills"), rows);
+ *
+ *   // or through a connectable, which picks the strategy of its vendor
+ *   long loaded = postgres.bulkLoad("player_stats", Arrays.asList("id", "name", "kills"), rows);
+ * </pre>
+ * <br>
+ * The rows are pulled from the iterator while they are sent, so they never have to be held in memory at once.
+ * <ul>
+ *     <li>{@link #copy()} streams the rows with PostgreSQL {@code COPY ... FROM STDIN}</li>
+ *     <li>{@link #loadDataLocalInfile()} streams the rows with MySQL / MariaDB {@code LOAD DATA LOCAL INFILE},
+ *     the connection needs {@code allowLoadLocalInfile=true}</li>
+ *     <li>{@link #multiRowInsert(int)} rewrites the rows into {@code INSERT ... VALUES (...), (...)} statements,
+ *     {@link #multiRowInsert(int, int)} additionally limits the parameters of a statement like SQL Server needs</li>
+ *     <li>{@link #singleTransaction(int)} sends single row inserts as jdbc batches, the fastest path of SQLite and the
+ *     path of Oracle, which has no multi row VALUES syntax</li>
+ * </ul>
+ * The vendor paths are called through reflection, so no driver has to be on the compile classpath. If the driver does
+ * not offer them the rows are loaded with {@link #multiRowInsert(int)} instead. Every strategy is all or nothing,
+ * the insert strategies run inside one transaction and COPY / LOAD DATA are a single statement.
+ * <br>
+ * COPY and LOAD DATA send the rows as text, so binary values are not supported by them.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class BulkLoader {
+
+    private static final Logger LOGGER = Logger.getLogger("BulkLoader");
+
+    /**
+     * Loads rows into a table on the given connection
+     */
+    @FunctionalInterface
+    public interface Strategy {
+
+        /**
+         * @param connection the connection to load the rows with, its auto commit state is restored afterwards
+         * @param table      the table the rows are inserted into
+         * @param columns    the columns in the order of the values of every row
+         * @param rows       the rows, every array holds one value per column
+         * @return count of loaded rows
+         * @throws SQLException if loading failed, in that case no row was loaded
+         */
+        long load(Connection connection, String table, List<String> columns, Iterator<Object[]> rows) throws SQLException;
+    }
+
+    private BulkLoader() {
+    }
+
+    /**
+     * @return a strategy using PostgreSQL {@code COPY ... FROM STDIN}, falling back to multi row inserts
+     */
+    public static Strategy copy() {
+        return (connection, table, columns, rows) -> {
+            Object copyManager;
+            Method copyIn;
+            try {
+                Class<?> pgConnection = Class.forName("org.postgresql.PGConnection");
+                copyManager = pgConnection.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnection));
+                copyIn = copyManager.getClass().getMethod("copyIn", String.class, InputStream.class);
+            } catch (ReflectiveOperationException | SQLException e) {
+                LOGGER.log(Level.FINE, "COPY is not available, falling back to multi row inserts\n{0}", e.getMessage());
+                return multiRowInsert(500).load(connection, table, columns, rows);
+            }
+            String sql = String.format("COPY %s (%s) FROM STDIN", table, String.join(", ", columns));
+            try (TextRowStream stream = new TextRowStream(rows, columns.size())) {
+                return (Long) copyIn.invoke(copyManager, sql, stream);
+            } catch (InvocationTargetException e) {
+                throw asSQLException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        };
+    }
+
+    /**
+     * @return a strategy using MySQL / MariaDB {@code LOAD DATA LOCAL INFILE} from a stream, falling back to multi row inserts
+     */
+    public static Strategy loadDataLocalInfile() {
+        return (connection, table, columns, rows) -> {
+            try (Statement statement = connection.createStatement()) {
+                Method setStream;
+                try {
+                    setStream = statement.getClass().getMethod("setLocalInfileInputStream", InputStream.class);
+                } catch (NoSuchMethodException e) {
+                    LOGGER.log(Level.FINE, "LOAD DATA LOCAL INFILE streams are not supported by {0}, falling back to multi row inserts", statement.getClass().getName());
+                    return multiRowInsert(500).load(connection, table, columns, rows);
+                }
+                String sql = String.format("LOAD DATA LOCAL INFILE 'stream' INTO TABLE %s CHARACTER SET utf8mb4 (%s)", table, String.join(", ", columns));
+                try (TextRowStream stream = new TextRowStream(rows, columns.size())) {
+                    setStream.invoke(statement, stream);
+                    statement.executeUpdate(sql);
+                    return stream.getRows();
+                } catch (InvocationTargetException e) {
+                    throw asSQLException(e.getCause());
+                } catch (IllegalAccessException e) {
+                    throw new SQLException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param rowsPerStatement count of rows sent with one insert statement, limited so a statement has at most 30000 parameters
+     * @return a strategy rewriting the rows into {@code INSERT ... VALUES (...), (...)} statements inside one transaction
+     */
+    public static Strategy multiRowInsert(int rowsPerStatement) {
+        return multiRowInsert(rowsPerStatement, 30000);
+    }
+
+    /**
+     * @param rowsPerStatement count of rows sent with one insert statement
+     * @param maxParameters    maximum count of parameters of one statement, fewer rows are sent if they would exceed it
+     * @return a strategy rewriting the rows into {@code INSERT ... VALUES (...), (...)} statements inside one transaction
+     */
+    public static Strategy multiRowInsert(int rowsPerStatement, int maxParameters) {
+        return (connection, table, columns, rows) -> {
+            int columnCount = columns.size();
+            int chunk = Math.max(1, Math.min(rowsPerStatement, maxParameters / columnCount));
+            return inTransaction(connection, () -> {
+                long loaded = 0;
+                int size = 0;
+                Object[][] buffer = new Object[chunk][];
+                PreparedStatement full = null;
+                try {
+                    while (rows.hasNext()) {
+                        buffer[size++] = rows.next();
+                        if (size == chunk) {
+                            if (full == null)
+                                full = connection.prepareStatement(insert(table, columns, chunk));
+                            bind(full, buffer, size, columnCount);
+                            full.executeUpdate();
+                            loaded += size;
+                            size = 0;
+                        }
+                    }
+                } finally {
+                    if (full != null)
+                        full.close();
+                }
+                if (size > 0) {
+                    try (PreparedStatement rest = connection.prepareStatement(insert(table, columns, size))) {
+                        bind(rest, buffer, size, columnCount);
+                        rest.executeUpdate();
+                        loaded += size;
+                    }
+                }
+                return loaded;
+            });
+        };
+    }
+
+    /**
+     * @param batchSize count of rows sent with one {@link PreparedStatement#executeBatch()}
+     * @return a strategy sending single row inserts as jdbc batches inside one transaction
+     */
+    public static Strategy singleTransaction(int batchSize) {
+        return (connection, table, columns, rows) -> inTransaction(connection, () -> {
+            long loaded = 0;
+            int size = 0;
+            try (PreparedStatement ps = connection.prepareStatement(insert(table, columns, 1))) {
+                while (rows.hasNext()) {
+                    Object[] row = rows.next();
+                    for (int i = 0; i < row.length; i++) {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                    ps.addBatch();
+                    if (++size == batchSize) {
+                        ps.executeBatch();
+                        loaded += size;
+                        size = 0;
+                    }
+                }
+                if (size > 0) {
+                    ps.executeBatch();
+                    loaded += size;
+                }
+            }
+            return loaded;
+        });
+    }
+
+    private static String insert(String table, List<String> columns, int rowCount) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        placeholders.append(')');
+        StringBuilder sql = new StringBuilder(32 + rowCount * (placeholders.length() + 2))
+                .append("INSERT INTO ").append(table).append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        for (int row = 0; row < rowCount; row++) {
+            if (row > 0)
+                sql.append(", ");
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement ps, Object[][] buffer, int size, int columnCount) throws SQLException {
+        int index = 0;
+        for (int row = 0; row < size; row++) {
+            Object[] values = buffer[row];
+            if (values.length != columnCount)
+                throw new SQLException(String.format("Expected %d values per row but got %d", columnCount, values.length));
+            for (Object value : values) {
+                ps.setObject(++index, value);
+            }
+            buffer[row] = null;
+        }
+    }
+
+    private static long inTransaction(Connection connection, Work work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            long loaded = work.run();
+            connection.commit();
+            return loaded;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static SQLException asSQLException(Throwable cause) {
+        if (cause instanceof SQLException)
+            return (SQLException) cause;
+        return new SQLException("Bulk loading failed", cause);
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        long run() throws SQLException;
+    }
+
+    /**
+     * Encodes rows on demand into the tab separated text format understood by both COPY and LOAD DATA,
+     * with {@code \N} for null and backslash escapes for tabs, line breaks and backslashes
+     */
+    private static class TextRowStream extends InputStream {
+
+        private final Iterator<Object[]> rows;
+        private final int columnCount;
+        private final StringBuilder line = new StringBuilder(256);
+        private byte[] buffer = new byte[0];
+        private int position;
+        private long rowCount;
+
+        private TextRowStream(Iterator<Object[]> rows, int columnCount) {
+            this.rows = rows;
+            this.columnCount = columnCount;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill())
+                return -1;
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0)
+                return 0;
+            int read = 0;
+            while (read < length && fill()) {
+                int count = Math.min(length - read, buffer.length - position);
+                System.arraycopy(buffer, position, target, offset + read, count);
+                position += count;
+                read += count;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        private boolean fill() throws IOException {
+            while (position == buffer.length) {
+                if (!rows.hasNext())
+                    return false;
+                Object[] values = rows.next();
+                if (values.length != columnCount)
+                    throw new IOException(String.format("Expected %d values per row but got %d", columnCount, values.length));
+                line.setLength(0);
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0)
+                        line.append('\t');
+                    append(values[i]);
+                }
+                line.append('\n');
+                buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                rowCount++;
+            }
+            return true;
+        }
+
+        private void append(Object value) throws IOException {
+            if (value == null) {
+                line.append("\\N");
+                return;
+            }
+            if (value instanceof byte[])
+                throw new IOException("Binary values can not be bulk loaded as text");
+            if (value instanceof Boolean) {
+                line.append((Boolean) value ? '1' : '0');
+                return;
+            }
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\': line.append("\\\\"); break;
+                    case '\t': line.append("\\t"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    default: line.append(c);
+                }
+            }
+        }
+
+        private long getRows() {
+            return rowCount;
+        }
+
+        @Override
+        public void close() {
+            buffer = new byte[0];
+            position = 0;
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stops calls to a database that is down instead of letting every call wait for a connection timeout.
+ * <br>
+ * After the configured count of consecutive connection failures the breaker opens and every call fails fast with
+ * an {@link OpenException}. Once the backoff elapsed a single call is let through as probe, if it succeeds the breaker
+ * closes again, if it fails the breaker stays open and the backoff is doubled up to the maximum backoff.
+ * Only connection failures (sql state class 08 and the jdbc connection exception types) count as failures, so an
+ * exhausted pool or a failing statement never opens the breaker. Only the probe decides whether an open breaker
+ * closes, calls that were still running when it opened are ignored, and a timeout is never taken as sign of recovery.
+ * <br>
+ * Every state change is logged once, calls rejected while the breaker is open are not logged.
+ * <br>
+ * Every {@link #acquire()} has to be followed by {@link #recordSuccess()}, {@link #recordFailure(SQLException)} or
+ * {@link #recordError(RuntimeException)}, otherwise a probe never ends. Failures of statements run on a connection
+ * borrowed through the breaker can be reported as well, an exception that was already reported is ignored.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Logger logger;
+    private final String name;
+    private final int failureThreshold;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile Thread probe;
+    private final Set<SQLException> recorded = Collections.newSetFromMap(new WeakHashMap<>());
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long backoffMillis;
+    private volatile long openUntil;
+
+    /**
+     * @param logger           logger state changes are reported to
+     * @param name             name of the protected resource used in log messages
+     * @param failureThreshold count of consecutive connection failures that opens the breaker
+     * @param initialBackoff   time the breaker stays open before the first probe
+     * @param maxBackoff       upper limit the backoff is doubled to
+     * @param unit             unit of both backoffs
+     */
+    public CircuitBreaker(Logger logger, String name, int failureThreshold, long initialBackoff, long maxBackoff, TimeUnit unit) {
+        this.logger = logger;
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.initialBackoffMillis = unit.toMillis(initialBackoff);
+        this.maxBackoffMillis = unit.toMillis(maxBackoff);
+        this.backoffMillis = initialBackoffMillis;
+    }
+
+    /**
+     * Has to be called before every protected call
+     *
+     * @throws OpenException if the breaker is open or another call is already probing
+     */
+    public void acquire() throws OpenException {
+        State current = state;
+        if (current == State.CLOSED)
+            return;
+        if (current == State.OPEN && System.currentTimeMillis() >= openUntil && probing.compareAndSet(false, true)) {
+            probe = Thread.currentThread();
+            state = State.HALF_OPEN;
+            return;
+        }
+        throw new OpenException(name, Math.max(0, openUntil - System.currentTimeMillis()));
+    }
+
+    /**
+     * Reports a successful call
+     */
+    public void recordSuccess() {
+        State current = state;
+        if (current == State.OPEN || current == State.CLOSED && consecutiveFailures == 0)
+            return;
+        synchronized (this) {
+            succeeded();
+        }
+    }
+
+    /**
+     * Resets the failure count while closed and closes the breaker if the probe succeeded,
+     * calls that were in flight when the breaker opened tell nothing about its recovery
+     */
+    private void succeeded() {
+        if (state == State.CLOSED) {
+            consecutiveFailures = 0;
+        } else if (isProbe()) {
+            logger.log(Level.INFO, "The connection to {0} is available again", name);
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+            backoffMillis = initialBackoffMillis;
+            endProbe();
+        }
+    }
+
+    /**
+     * Reports a failed call, failures that are not connection failures prove the database is reachable and count as success.
+     * A timeout proves neither, it only ends a running probe.
+     *
+     * @param e the exception the call failed with
+     */
+    public synchronized void recordFailure(SQLException e) {
+        if (e instanceof OpenException)
+            return;
+        if (e instanceof SQLTimeoutException) {
+            if (isProbe())
+                reopen(String.valueOf(e));
+            return;
+        }
+        if (!isConnectionFailure(e)) {
+            succeeded();
+            return;
+        }
+        // the same exception is reported by the borrow that threw it and by the statement that caught it
+        if (!recorded.add(e))
+            return;
+        if (isProbe()) {
+            backoffMillis = Math.min(maxBackoffMillis, backoffMillis * 2);
+            open(e);
+            endProbe();
+        } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            open(e);
+        }
+    }
+
+    /**
+     * Reports a call that failed with an unexpected exception, which tells nothing about the connection.
+     * A running probe ends and the breaker stays open for the current backoff.
+     *
+     * @param e the exception the call failed with
+     */
+    public synchronized void recordError(RuntimeException e) {
+        if (isProbe())
+            reopen(String.valueOf(e));
+    }
+
+    private boolean isProbe() {
+        return state == State.HALF_OPEN && probe == Thread.currentThread();
+    }
+
+    private void reopen(String reason) {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + backoffMillis;
+        endProbe();
+        logger.log(Level.WARNING, "The probe of {0} failed unexpectedly, the next attempt follows in {1}ms\n{2}", new Object[]{name, backoffMillis, reason});
+    }
+
+    private void endProbe() {
+        probe = null;
+        probing.set(false);
+    }
+
+    private void open(SQLException e) {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + backoffMillis;
+        logger.log(Level.SEVERE, "The connection to {0} failed {1} times, calls fail fast for the next {2}ms\n{3}",
+                new Object[]{name, Math.max(consecutiveFailures, 1), backoffMillis, e.getMessage()});
+    }
+
+    /**
+     * @return the current state of the breaker
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @param e an exception thrown by a jdbc call
+     * @return true if the exception indicates that the database could not be reached
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof OpenException)
+            return false;
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException)
+            return true;
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Thrown instead of calling the database while the breaker is open
+     */
+    public static class OpenException extends SQLTransientConnectionException {
+
+        private static final long serialVersionUID = 1L;
+
+        private OpenException(String name, long retryInMillis) {
+            super(String.format("The connection to %s is unavailable, next attempt in %dms", name, retryInMillis), "08001");
+        }
+    }
+
+}
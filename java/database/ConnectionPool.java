@@ -0,0 +1,750 @@
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A small bounded jdbc connection pool used by {@link DatabaseUtil} and the {@code VariousSQLDatabase.Connectable} classes.
+ * <br>
+ * How to use:
+ * <pre>
+ *   ConnectionPool pool = ConnectionPool.builder("jdbc:mysql://localhost:3306/database")
+ *           .credentials("username", "password")
+ *           .minSize(2)
+ *           .maxSize(16)
+ *           .borrowTimeout(5, TimeUnit.SECONDS)
+ *           .leakDetectionThreshold(30, TimeUnit.SECONDS)
+ *           .statementCacheSize(32)
+ *           .build();
+ *
+ *   try (Connection connection = pool.getConnection()) {
+ *       // closing the connection hands it back to the pool
+ *   }
+ *
+ *   pool.close();
+ * </pre>
+ * <br>
+ * Connections are validated with {@link Connection#isValid(int)} when they are borrowed unless they were handed back
+ * within the validation interval, idle connections above the minimum size are evicted after the idle timeout and
+ * connections that are held longer than the leak detection threshold are logged together with the stack trace of the
+ * borrower. Read only mode, transaction isolation and catalog changed by a borrower are reset when the connection is
+ * handed back.
+ * <br>
+ * With a statement cache size above 0 every physical connection keeps a {@link StatementCache} of its most recently
+ * used {@link PreparedStatement}s, which is closed together with the connection.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("ConnectionPool");
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final String url;
+    private final Properties properties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long validationIntervalMillis;
+    private final long leakDetectionThresholdMillis;
+    private final int statementCacheSize;
+    private final List<String> initSql;
+    private final Set<String> hotStatements = new CopyOnWriteArraySet<>();
+    private final DatabaseMetrics metrics;
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private ConnectionPool(Builder builder) {
+        this.url = builder.url;
+        this.properties = builder.properties;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.borrowTimeoutMillis = builder.borrowTimeoutMillis;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.validationIntervalMillis = builder.validationIntervalMillis;
+        this.leakDetectionThresholdMillis = builder.leakDetectionThresholdMillis;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.initSql = new ArrayList<>(builder.initSql);
+        this.hotStatements.addAll(builder.hotStatements);
+        this.metrics = builder.metrics;
+        this.permits = new Semaphore(maxSize, true);
+        String name = "ConnectionPool-" + POOL_COUNTER.incrementAndGet() + "-housekeeper";
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000L, Math.min(builder.housekeepingPeriodMillis, idleTimeoutMillis > 0 ? idleTimeoutMillis : Long.MAX_VALUE));
+        this.housekeeper.scheduleWithFixedDelay(this::houseKeep, 0L, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param url the jdbc url every physical connection is opened with
+     * @return a new {@link Builder} for a pool connecting to the given url
+     */
+    public static Builder builder(String url) {
+        return new Builder(url);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none is idle and the pool is not at its maximum size.
+     * Calling {@link Connection#close()} on the returned connection hands it back to the pool.
+     *
+     * @return a validated {@link Connection}
+     * @throws SQLTimeoutException if no connection became available within the borrow timeout
+     * @throws SQLException        if a new connection could not be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLNonTransientConnectionException("The connection pool has been closed");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTimeoutException(String.format("No connection became available within %dms (active: %d, max: %d)", borrowTimeoutMillis, borrowed.size(), maxSize));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            PooledConnection pooled = idle.pollFirst();
+            while (true) {
+                if (pooled == null) {
+                    if (reserve(maxSize))
+                        return lend(open(), start);
+                    // every slot is taken by an idle connection or one that is about to be handed in, e.g. by the housekeeper
+                    pooled = pollIdle(start);
+                    if (pooled == null)
+                        continue;
+                }
+                if (isUsable(pooled))
+                    return lend(pooled, start);
+                destroy(pooled);
+                pooled = idle.pollFirst();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits a moment for an idle connection, the caller tries to reserve a slot again if none was handed in
+     */
+    private PooledConnection pollIdle(long start) throws SQLException {
+        long remaining = borrowTimeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (remaining <= 0)
+            throw new SQLTimeoutException(String.format("No connection became available within %dms (active: %d, max: %d)", borrowTimeoutMillis, borrowed.size(), maxSize));
+        try {
+            return idle.pollFirst(Math.min(remaining, 10L), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    /**
+     * Counts a connection that is about to be opened, so concurrent borrowers and the housekeeper never exceed the limit together
+     *
+     * @return true if the count of open connections was below the limit and has been incremented
+     */
+    private boolean reserve(int limit) {
+        int current;
+        do {
+            current = totalConnections.get();
+            if (current >= limit)
+                return false;
+        } while (!totalConnections.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Opens up to the given count of connections in parallel and prepares every hot statement on each of them,
+     * so the first calls after startup neither wait for a connection nor for the database to parse their sql
+     *
+     * @param connections count of connections that should be open afterwards, limited by the maximum size
+     * @param executor    executor the connections are opened on, every connection needs its own thread to open in parallel
+     * @return a {@link CompletableFuture} completed with the count of warmed up connections, failures are logged
+     */
+    public CompletableFuture<Integer> warmUp(int connections, Executor executor) {
+        List<CompletableFuture<Connection>> borrowing = new ArrayList<>();
+        for (int i = 0; i < Math.min(connections, maxSize); i++) {
+            borrowing.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getConnection();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        // every connection is held until all are borrowed, otherwise a fast thread would get an already opened one again
+        return CompletableFuture.allOf(borrowing.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> {
+            List<CompletableFuture<Boolean>> preparing = new ArrayList<>();
+            for (CompletableFuture<Connection> future : borrowing) {
+                if (future.isCompletedExceptionally()) {
+                    future.exceptionally(e -> {
+                        LOGGER.log(Level.WARNING, "There was an error opening a connection while warming up the pool\n{0}", e.getMessage());
+                        return null;
+                    });
+                    continue;
+                }
+                Connection connection = future.join();
+                preparing.add(CompletableFuture.supplyAsync(() -> prepareHotStatements(connection), executor));
+            }
+            return preparing;
+        }).thenCompose(preparing -> CompletableFuture.allOf(preparing.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            int warmed = 0;
+            for (CompletableFuture<Boolean> future : preparing) {
+                if (future.join())
+                    warmed++;
+            }
+            return warmed;
+        }));
+    }
+
+    private boolean prepareHotStatements(Connection connection) {
+        try (Connection borrowed = connection) {
+            for (String sql : statementCacheSize > 0 ? hotStatements : Collections.<String>emptySet()) {
+                try {
+                    borrowed.prepareStatement(sql).close();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "There was an error preparing the hot statement {0}\n{1}", new Object[]{sql, e.getMessage()});
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "There was an error handing back a connection while warming up the pool\n{0}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Registers sql that is prepared on every connection by {@link #warmUp(int, Executor)}, only used with a statement cache
+     *
+     * @param sql the sql template of a frequently executed statement
+     */
+    public void registerHotStatement(String sql) {
+        hotStatements.add(sql);
+    }
+
+    /**
+     * Not supported, the credentials are fixed when the pool is built
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The credentials of a connection pool are fixed when it is built");
+    }
+
+    /**
+     * @return count of connections that are currently borrowed
+     */
+    public int getActiveConnections() {
+        return borrowed.size();
+    }
+
+    /**
+     * @return count of connections that are currently idle inside the pool
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * @return count of physical connections that are currently open
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return maximum count of physical connections this pool opens
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return count of prepared statements that were served from a statement cache
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * @return count of prepared statements that had to be prepared because they were not cached
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * @return the jdbc url this pool connects to
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return true if {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeping thread.
+     * Borrowed connections are closed as soon as they are handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed())
+                return false;
+            // a connection that was in use a moment ago is alive, validating it again would cost a round-trip per borrow
+            return System.currentTimeMillis() - pooled.lastUsedAt < validationIntervalMillis || pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a physical connection for a slot taken with {@link #reserve(int)}, the slot is released if opening fails
+     */
+    private PooledConnection open() throws SQLException {
+        Connection physical = null;
+        try {
+            physical = DriverManager.getConnection(url, properties);
+            if (!initSql.isEmpty()) {
+                try (Statement statement = physical.createStatement()) {
+                    for (String sql : initSql) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+            return new PooledConnection(physical, statementCacheSize > 0 ? new StatementCache(statementCacheSize, statementCacheHits, statementCacheMisses) : null);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            if (physical != null)
+                physical.close();
+            throw e;
+        }
+    }
+
+    private Connection lend(PooledConnection pooled, long waitStart) {
+        if (metrics != null)
+            metrics.recordPoolWait(System.nanoTime() - waitStart);
+        pooled.borrowedAt = System.currentTimeMillis();
+        pooled.borrowTrace = leakDetectionThresholdMillis > 0 ? new Exception("Connection borrowed here") : null;
+        pooled.leakReported = false;
+        borrowed.add(pooled);
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, new ConnectionHandler(pooled));
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.resetSettings();
+            pooled.physical.clearWarnings();
+            pooled.lastUsedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "There was an error resetting a pooled connection, it will be discarded\n{0}", e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            if (pooled.statementCache != null)
+                pooled.statementCache.closeAll();
+        } finally {
+            try {
+                pooled.physical.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "There was an error closing a pooled connection\n{0}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * An exception escaping a scheduled run would cancel every following run silently,
+     * so unexpected errors are logged and the next period tries again
+     */
+    private void houseKeep() {
+        try {
+            evictAndRefill();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "There was an unexpected error during the housekeeping of the connection pool to " + url, e);
+        }
+    }
+
+    private void evictAndRefill() {
+        long now = System.currentTimeMillis();
+        if (idleTimeoutMillis > 0) {
+            for (PooledConnection pooled : idle) {
+                if (totalConnections.get() <= minSize)
+                    break;
+                if (now - pooled.lastUsedAt > idleTimeoutMillis && idle.remove(pooled))
+                    destroy(pooled);
+            }
+        }
+        if (leakDetectionThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdMillis) {
+                    pooled.leakReported = true;
+                    LOGGER.log(Level.WARNING, String.format("Possible connection leak, a connection to %s has been borrowed for %dms", url, now - pooled.borrowedAt), pooled.borrowTrace);
+                }
+            }
+        }
+        while (!closed && reserve(minSize)) {
+            // open() hands the reserved slot back if it fails, with a SQLException as well as a RuntimeException
+            try {
+                PooledConnection pooled = open();
+                pooled.lastUsedAt = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "There was an error trying to fill the connection pool to its minimum size\n{0}", e.getMessage());
+                break;
+            }
+        }
+    }
+
+    //region DataSource
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("ConnectionPool does not wrap " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+    //endregion
+
+    private static class PooledConnection {
+
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Exception borrowTrace;
+        private volatile boolean leakReported;
+        private boolean readOnlyChanged;
+        private boolean defaultReadOnly;
+        private boolean transactionIsolationChanged;
+        private int defaultTransactionIsolation;
+        private boolean catalogChanged;
+        private String defaultCatalog;
+
+        private PooledConnection(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+
+        /**
+         * Restores the settings the borrower changed, so they do not carry over to the next borrower
+         */
+        private void resetSettings() throws SQLException {
+            if (readOnlyChanged) {
+                physical.setReadOnly(defaultReadOnly);
+                readOnlyChanged = false;
+            }
+            if (transactionIsolationChanged) {
+                physical.setTransactionIsolation(defaultTransactionIsolation);
+                transactionIsolationChanged = false;
+            }
+            if (catalogChanged) {
+                if (defaultCatalog != null)
+                    physical.setCatalog(defaultCatalog);
+                catalogChanged = false;
+            }
+        }
+    }
+
+    /**
+     * Forwards every call to the physical connection except {@link Connection#close()}, which hands it back to the pool,
+     * and {@link Connection#prepareStatement(String)}, which is served from the statement cache if there is one
+     */
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        private ConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            giveBack(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                // the first change of a setting remembers its previous value, which is restored when the connection is handed back
+                case "setReadOnly":
+                    if (!returned && !pooled.readOnlyChanged) {
+                        pooled.defaultReadOnly = pooled.physical.isReadOnly();
+                        pooled.readOnlyChanged = true;
+                    }
+                    return forward(method, args);
+                case "setTransactionIsolation":
+                    if (!returned && !pooled.transactionIsolationChanged) {
+                        pooled.defaultTransactionIsolation = pooled.physical.getTransactionIsolation();
+                        pooled.transactionIsolationChanged = true;
+                    }
+                    return forward(method, args);
+                case "setCatalog":
+                    if (!returned && !pooled.catalogChanged) {
+                        pooled.defaultCatalog = pooled.physical.getCatalog();
+                        pooled.catalogChanged = true;
+                    }
+                    return forward(method, args);
+                case "prepareStatement":
+                    if (!returned && pooled.statementCache != null && args.length == 1)
+                        return pooled.statementCache.prepare(pooled.physical, (Connection) proxy, (String) args[0]);
+                    // uncached variants are forwarded like every other method
+                    return forward(method, args);
+                default:
+                    return forward(method, args);
+            }
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            if (returned)
+                throw new SQLNonTransientConnectionException("The connection has already been handed back to the pool");
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final String url;
+        private final Properties properties = new Properties();
+        private int minSize = 1;
+        private int maxSize = 10;
+        private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(10);
+        private long borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+        private int validationTimeoutSeconds = 5;
+        private long validationIntervalMillis = 500L;
+        private long leakDetectionThresholdMillis = 0L;
+        private long housekeepingPeriodMillis = TimeUnit.SECONDS.toMillis(30);
+        private int statementCacheSize = 0;
+        private final List<String> initSql = new ArrayList<>();
+        private final List<String> hotStatements = new ArrayList<>();
+        private DatabaseMetrics metrics;
+
+        private Builder(String url) {
+            this.url = url;
+        }
+
+        /**
+         * @param username username to authenticate on the database
+         * @param password password to authenticate on the database
+         */
+        public Builder credentials(String username, String password) {
+            if (username != null)
+                properties.setProperty("user", username);
+            if (password != null)
+                properties.setProperty("password", password);
+            return this;
+        }
+
+        /**
+         * @param key   driver specific connection property
+         * @param value value of the property
+         */
+        public Builder property(String key, String value) {
+            properties.setProperty(key, value);
+            return this;
+        }
+
+        /**
+         * @param minSize count of connections the pool keeps open even when they are idle (default: 1)
+         */
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * @param maxSize maximum count of open connections (default: 10)
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param timeout time after which idle connections above the minimum size are closed, 0 disables eviction (default: 10 minutes)
+         */
+        public Builder idleTimeout(long timeout, TimeUnit unit) {
+            this.idleTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout maximum time {@link ConnectionPool#getConnection()} waits for a free connection (default: 30 seconds)
+         */
+        public Builder borrowTimeout(long timeout, TimeUnit unit) {
+            this.borrowTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param seconds timeout passed to {@link Connection#isValid(int)} when a connection is borrowed (default: 5)
+         */
+        public Builder validationTimeout(int seconds) {
+            this.validationTimeoutSeconds = seconds;
+            return this;
+        }
+
+        /**
+         * @param interval time after handing a connection back within which it is lent again without validation, 0 validates every borrow (default: 500 milliseconds)
+         */
+        public Builder validationInterval(long interval, TimeUnit unit) {
+            this.validationIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * @param threshold time a connection may be borrowed before it is logged as possible leak, 0 disables detection (default: 0)
+         */
+        public Builder leakDetectionThreshold(long threshold, TimeUnit unit) {
+            this.leakDetectionThresholdMillis = unit.toMillis(threshold);
+            return this;
+        }
+
+        /**
+         * @param period interval of idle eviction, leak detection and refilling to the minimum size (default: 30 seconds)
+         */
+        public Builder housekeepingPeriod(long period, TimeUnit unit) {
+            this.housekeepingPeriodMillis = unit.toMillis(period);
+            return this;
+        }
+
+        /**
+         * @param size count of prepared statements cached per connection, 0 disables the cache (default: 0)
+         */
+        public Builder statementCacheSize(int size) {
+            this.statementCacheSize = size;
+            return this;
+        }
+
+        /**
+         * @param sql statement executed on every new physical connection before it is lent, e.g. session settings or PRAGMAs
+         */
+        public Builder initSql(String sql) {
+            this.initSql.add(sql);
+            return this;
+        }
+
+        /**
+         * @param sql sql template prepared on every connection when the pool is warmed up, see {@link ConnectionPool#warmUp(int, Executor)}
+         */
+        public Builder hotStatement(String sql) {
+            this.hotStatements.add(sql);
+            return this;
+        }
+
+        /**
+         * @param metrics metrics the time every borrow waited for a connection is recorded to
+         */
+        public Builder metrics(DatabaseMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            if (maxSize < 1 || minSize < 0 || minSize > maxSize)
+                throw new IllegalArgumentException(String.format("Invalid pool size (min: %d, max: %d)", minSize, maxSize));
+            return new ConnectionPool(this);
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded executor that runs blocking database calls off the calling thread.
+ * <br>
+ * How to use:
+ * <pre>
+ *   DatabaseExecutor executor = new DatabaseExecutor(4, 1024)
+ *           .setCallbackExecutor(runnable -> Bukkit.getScheduler().runTask(plugin, runnable));
+ *
+ *   executor.submit(() -> databaseUtil.execute("UPDATE players SET coins=? WHERE id=?", 10, 1))
+ *           .thenAccept(manipulations -> player.sendMessage("Saved!"));
+ * </pre>
+ * <br>
+ * Once the queue is full {@link #submit(Callable)} waits up to the offer timeout for a free slot and completes the
+ * returned future with a {@link RejectedExecutionException} if none became available, so a burst of calls slows the
+ * caller down instead of growing the queue without bound.
+ * <br>
+ * On Java 21 the worker threads can be virtual threads by passing {@code Thread.ofVirtual().factory()} as thread factory.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class DatabaseExecutor implements AutoCloseable {
+
+    private static final AtomicInteger EXECUTOR_COUNTER = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private volatile Executor callbackExecutor;
+
+    /**
+     * @param threads       count of threads running database calls
+     * @param queueCapacity maximum count of calls waiting for a free thread
+     */
+    public DatabaseExecutor(int threads, int queueCapacity) {
+        this(threads, queueCapacity, 1, TimeUnit.SECONDS, defaultThreadFactory());
+    }
+
+    /**
+     * @param threads       count of threads running database calls
+     * @param queueCapacity maximum count of calls waiting for a free thread
+     * @param offerTimeout  time a caller waits for a free slot once the queue is full
+     * @param unit          unit of the offer timeout
+     * @param threadFactory factory creating the worker threads
+     */
+    public DatabaseExecutor(int threads, int queueCapacity, long offerTimeout, TimeUnit unit, ThreadFactory threadFactory) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), threadFactory, (runnable, pool) -> {
+            try {
+                if (pool.isShutdown() || !pool.getQueue().offer(runnable, offerTimeout, unit))
+                    throw new RejectedExecutionException(String.format("The database queue is full (%d calls waiting)", pool.getQueue().size()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a free slot in the database queue", e);
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory defaultThreadFactory() {
+        String prefix = "DatabaseExecutor-" + EXECUTOR_COUNTER.incrementAndGet() + "-";
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Sets the executor every result is handed to, e.g. the main thread of a server
+     *
+     * @param callbackExecutor executor completing the returned futures, null completes them on the worker thread
+     * @return this executor
+     */
+    public DatabaseExecutor setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Runs the given call on a worker thread
+     *
+     * @param call the blocking database call
+     * @return a {@link CompletableFuture} completed with the result of the call on the callback executor
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        Executor callback = this.callbackExecutor;
+        if (callback == null)
+            return future;
+        CompletableFuture<T> handedOver = new CompletableFuture<>();
+        future.whenComplete((result, error) -> callback.execute(() -> {
+            if (error != null)
+                handedOver.completeExceptionally(error);
+            else
+                handedOver.complete(result);
+        }));
+        return handedOver;
+    }
+
+    /**
+     * @return count of calls waiting for a free thread
+     */
+    public int getQueuedCalls() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return count of calls that are running right now
+     */
+    public int getActiveCalls() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Stops accepting new calls and waits up to the given time for queued calls to finish
+     *
+     * @return true if every queued call finished in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdown(30, TimeUnit.SECONDS);
+    }
+
+}
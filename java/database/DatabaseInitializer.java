@@ -0,0 +1,125 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the database setup of several plugins and runs it in parallel off the main thread.
+ * <br>
+ * How to use:
+ * <pre>
+ *   DatabaseInitializer initializer = databaseUtil.initializer()
+ *           .schema(playerStatsSchema, inventorySchema)
+ *           .task(connection -&gt; connection.createStatement().execute("CREATE TABLE IF NOT EXISTS bans (uuid VARCHAR(36))"))
+ *           .hotStatement("SELECT coins FROM players WHERE id=?")
+ *           .warmConnections(8);
+ *
+ *   initializer.start().thenRun(() -&gt; getLogger().info("Database ready"));
+ * </pre>
+ * <br>
+ * Every schema and task runs concurrently on its own pooled connection, so they must not depend on each other.
+ * Once all of them finished the pool is warmed up, the connections are opened in parallel and every hot statement is
+ * prepared on each of them. Hot statements are prepared after the schema tasks because they usually need their tables.
+ * <br>
+ * The returned future completes exceptionally with the first failure of a schema or task, the remaining ones still run
+ * but the pool is not warmed up.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class DatabaseInitializer {
+
+    private static final Logger LOGGER = Logger.getLogger("DatabaseInitializer");
+    private static final AtomicInteger INITIALIZER_COUNTER = new AtomicInteger();
+
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
+    private final List<Task> tasks = new ArrayList<>();
+    private int warmConnections;
+
+    /**
+     * @param pool    the pool the setup runs on and that is warmed up
+     * @param dialect the dialect the ddl of schemas is written in
+     */
+    public DatabaseInitializer(ConnectionPool pool, SqlDialect dialect) {
+        this.pool = pool;
+        this.dialect = dialect;
+        this.warmConnections = Math.min(4, pool.getMaxSize());
+    }
+
+    /**
+     * @param schemas tables whose missing parts are created, see {@link TableSchema#ensure(Connection, SqlDialect)}
+     */
+    public DatabaseInitializer schema(TableSchema... schemas) {
+        for (TableSchema schema : schemas) {
+            tasks.add(connection -> schema.ensure(connection, dialect));
+        }
+        return this;
+    }
+
+    /**
+     * @param task setup that needs a connection, e.g. ddl a {@link TableSchema} can not express
+     */
+    public DatabaseInitializer task(Task task) {
+        tasks.add(task);
+        return this;
+    }
+
+    /**
+     * @param sql sql template prepared on every warmed up connection, see {@link ConnectionPool#registerHotStatement(String)}
+     */
+    public DatabaseInitializer hotStatement(String sql) {
+        pool.registerHotStatement(sql);
+        return this;
+    }
+
+    /**
+     * @param connections count of connections opened before the returned future completes (default: 4 or the maximum pool size)
+     */
+    public DatabaseInitializer warmConnections(int connections) {
+        this.warmConnections = connections;
+        return this;
+    }
+
+    /**
+     * Runs every schema and task on temporary threads and warms up the pool afterwards
+     *
+     * @return a {@link CompletableFuture} completed once the database is ready
+     */
+    public CompletableFuture<Void> start() {
+        int threads = Math.max(1, Math.min(pool.getMaxSize(), Math.max(tasks.size(), warmConnections)));
+        String prefix = "DatabaseInitializer-" + INITIALIZER_COUNTER.incrementAndGet() + "-";
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Void>> running = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            running.add(CompletableFuture.runAsync(() -> {
+                try (Connection connection = pool.getConnection()) {
+                    task.run(connection);
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "There was an error initializing the database\n{0}", e.getMessage());
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        CompletableFuture<Void> result = CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> pool.warmUp(warmConnections, executor))
+                .thenApply(warmed -> null);
+        result.whenComplete((ignored, error) -> executor.shutdown());
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run(Connection connection) throws SQLException;
+    }
+
+}
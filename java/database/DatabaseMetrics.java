@@ -0,0 +1,290 @@
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects latency, call, row and error counts per sql statement as well as the time spent waiting for a pooled connection.
+ * <br>
+ * How to use:
+ * <pre>
+ *   DatabaseMetrics metrics = new DatabaseMetrics(250, TimeUnit.MILLISECONDS);
+ *   metrics.registerMBean("main");
+ *
+ *   ConnectionPool pool = ConnectionPool.builder(url).metrics(metrics).build();
+ *   DatabaseUtil databaseUtil = new DatabaseUtil(pool);
+ *   databaseUtil.setMetrics(metrics);
+ *
+ *   for (DatabaseMetrics.StatementSnapshot statement : metrics.snapshot()) {
+ *       System.out.println(statement.getSql() + " p99: " + statement.getP99Millis() + "ms");
+ *   }
+ * </pre>
+ * <br>
+ * Statements slower than the slow query threshold are logged with their sql and duration. The metrics are also
+ * available through JMX as {@code database:type=DatabaseMetrics,name=<name>} after {@link #registerMBean(String)}.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class DatabaseMetrics implements DatabaseMetricsMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger("DatabaseMetrics");
+    private static final String OTHER_STATEMENTS = "<other>";
+
+    private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+    private final LongAdder slowQueries = new LongAdder();
+    private final int maxStatements;
+    private volatile long slowQueryThresholdNanos;
+
+    /**
+     * @param slowQueryThreshold statements running longer are logged, 0 disables slow query logging
+     * @param unit               unit of the threshold
+     */
+    public DatabaseMetrics(long slowQueryThreshold, TimeUnit unit) {
+        this(slowQueryThreshold, unit, 1000);
+    }
+
+    /**
+     * @param slowQueryThreshold statements running longer are logged, 0 disables slow query logging
+     * @param unit               unit of the threshold
+     * @param maxStatements      count of distinct sql statements tracked separately, further ones are tracked as {@code <other>}
+     */
+    public DatabaseMetrics(long slowQueryThreshold, TimeUnit unit, int maxStatements) {
+        this.slowQueryThresholdNanos = unit.toNanos(slowQueryThreshold);
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Records one finished statement
+     *
+     * @param sql        the sql statement, ideally a template with '?' placeholders
+     * @param startNanos the {@link System#nanoTime()} the statement was started at
+     * @param rows       count of rows the statement returned or changed
+     * @param failed     true if the statement threw an exception
+     */
+    public void record(String sql, long startNanos, long rows, boolean failed) {
+        long nanos = System.nanoTime() - startNanos;
+        StatementMetrics metrics = statements.get(sql);
+        if (metrics == null) {
+            String key = statements.size() < maxStatements ? sql : OTHER_STATEMENTS;
+            metrics = statements.computeIfAbsent(key, k -> new StatementMetrics());
+        }
+        metrics.latency.record(nanos);
+        metrics.rows.add(rows);
+        if (failed)
+            metrics.errors.increment();
+        long threshold = slowQueryThresholdNanos;
+        if (threshold > 0 && nanos > threshold) {
+            slowQueries.increment();
+            LOGGER.log(Level.WARNING, "Slow sql statement took {0}ms:\n{1}", new Object[]{TimeUnit.NANOSECONDS.toMillis(nanos), sql});
+        }
+    }
+
+    /**
+     * Records the time a caller waited for a pooled connection
+     *
+     * @param nanos the waiting time in nanoseconds
+     */
+    public void recordPoolWait(long nanos) {
+        poolWait.record(nanos);
+    }
+
+    /**
+     * @return the current values of every tracked statement ordered by total time spent, most expensive first
+     */
+    public List<StatementSnapshot> snapshot() {
+        List<StatementSnapshot> snapshots = new ArrayList<>(statements.size());
+        statements.forEach((sql, metrics) -> snapshots.add(new StatementSnapshot(sql, metrics)));
+        snapshots.sort(Comparator.comparingDouble(StatementSnapshot::getTotalMillis).reversed());
+        return snapshots;
+    }
+
+    /**
+     * @return the latency histogram of the sql statement or null if it was never recorded
+     */
+    public LatencyHistogram getLatency(String sql) {
+        StatementMetrics metrics = statements.get(sql);
+        return metrics == null ? null : metrics.latency;
+    }
+
+    /**
+     * @return the histogram of the time callers waited for a pooled connection
+     */
+    public LatencyHistogram getPoolWait() {
+        return poolWait;
+    }
+
+    public void setSlowQueryThreshold(long threshold, TimeUnit unit) {
+        this.slowQueryThresholdNanos = unit.toNanos(threshold);
+    }
+
+    /**
+     * Drops every recorded value
+     */
+    @Override
+    public void reset() {
+        statements.clear();
+        poolWait.reset();
+        slowQueries.reset();
+    }
+
+    /**
+     * Registers these metrics with the platform {@link MBeanServer}
+     *
+     * @param name value of the name key of the object name
+     * @return the {@link ObjectName} the metrics were registered as
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("database:type=DatabaseMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "There was an error registering the database metrics with JMX\n{0}", e.getMessage());
+        }
+        return null;
+    }
+
+    //region DatabaseMetricsMXBean
+    @Override
+    public List<StatementSnapshot> getStatements() {
+        return snapshot();
+    }
+
+    @Override
+    public long getTotalCalls() {
+        long calls = 0;
+        for (StatementMetrics metrics : statements.values()) {
+            calls += metrics.latency.getCount();
+        }
+        return calls;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long errors = 0;
+        for (StatementMetrics metrics : statements.values()) {
+            errors += metrics.errors.sum();
+        }
+        return errors;
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        setSlowQueryThreshold(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getPoolWaitP99Millis() {
+        return poolWait.getPercentile(99, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getPoolWaitMaxMillis() {
+        return poolWait.getMax(TimeUnit.MILLISECONDS);
+    }
+    //endregion
+
+    private static class StatementMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * The values of one sql statement at the time the snapshot was taken
+     */
+    public static class StatementSnapshot {
+
+        private final String sql;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        private StatementSnapshot(String sql, StatementMetrics metrics) {
+            this.sql = sql;
+            this.calls = metrics.latency.getCount();
+            this.errors = metrics.errors.sum();
+            this.rows = metrics.rows.sum();
+            this.meanMillis = metrics.latency.getMean(TimeUnit.MILLISECONDS);
+            this.p50Millis = metrics.latency.getPercentile(50, TimeUnit.MILLISECONDS);
+            this.p95Millis = metrics.latency.getPercentile(95, TimeUnit.MILLISECONDS);
+            this.p99Millis = metrics.latency.getPercentile(99, TimeUnit.MILLISECONDS);
+            this.maxMillis = metrics.latency.getMax(TimeUnit.MILLISECONDS);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public double getTotalMillis() {
+            return meanMillis * calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s [calls: %d, errors: %d, rows: %d, mean: %.2fms, p50: %.2fms, p95: %.2fms, p99: %.2fms, max: %.2fms]",
+                    sql, calls, errors, rows, meanMillis, p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+
+}
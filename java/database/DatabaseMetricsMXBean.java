@@ -0,0 +1,28 @@
+import java.util.List;
+
+/**
+ * The JMX view of {@link DatabaseMetrics}
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public interface DatabaseMetricsMXBean {
+
+    List<DatabaseMetrics.StatementSnapshot> getStatements();
+
+    long getTotalCalls();
+
+    long getTotalErrors();
+
+    long getSlowQueries();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    double getPoolWaitP99Millis();
+
+    double getPoolWaitMaxMillis();
+
+    void reset();
+}
@@ -1,7 +1,12 @@
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.Table;
 
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is a util class for simpler interaction with a mysql database server.
@@ -13,6 +18,7 @@ import java.sql.*;
  *   boolean hasResult = databaseUtil.execute("CREATE TABLE table (id INT(6) UNSIGNED AUTO_INCREMENT PRIMARY KEY, email VARCHAR(50))") == 1;
  *   int manipulationsInsert = databaseUtil.execute("INSERT INTO table VALUES (?, ?)", 1, "default@email.com");
  *   int manipulationsUpdate = databaseUtil.execute("UPDATE table SET email=?", 1, "john@doe.com");
+ *   int[] manipulationsBatch = databaseUtil.executeBatch("INSERT INTO table VALUES (?, ?)", Arrays.asList(new Object[]{2, "a@b.com"}, new Object[]{3, "c@d.com"}));
  *
  *   Table<Integer, String, Object> result = databaseUtil.query("SELECT TOP 1 email FROM table WHERE id=?", 1);
  *
@@ -20,8 +26,15 @@ import java.sql.*;
  *       return;
  *
  *   String email = String.valueOf(result.row(1).get("email"));
+ *   List<Account> accounts = databaseUtil.queryAs("SELECT id, email FROM table", Account.class);
+ *
+ *   databaseUtil.forEachRow("SELECT id, email FROM table", 1000, row -> System.out.println(row.getInt(1) + ": " + row.getString(2)));
  * </pre>
  * <br>
+ * Every call borrows a connection from a {@link ConnectionPool}, so multiple threads can use the same instance concurrently
+ * and a dropped connection is replaced the next time it is borrowed. Prepared statements are cached per connection,
+ * so repeatedly executed sql is only parsed once per connection.
+ * <br>
  * This class uses <a href="https://github.com/google/guava">Google Guava Java Library</a> for the {@link #query(String, Object...)} method so the following dependency is needed
  * <br>
  *
@@ -41,10 +54,12 @@ import java.sql.*;
  */
 public class DatabaseUtil {
 
-    private Connection connection;
+    private ConnectionPool pool;
+    private volatile QueryCache<Table<Integer, String, Object>> queryCache;
+    private volatile DatabaseMetrics metrics;
 
     /**
-     * Initializes a {@link java.sql.Connection} object with the provided credentials
+     * Initializes a {@link ConnectionPool} with the provided credentials
      *
      * @param host     mysql server host address
      * @param port     mysql server port (default: 3306)
@@ -53,22 +68,51 @@ public class DatabaseUtil {
      * @param password mysql database password
      */
     public DatabaseUtil(String host, String port, String database, String username, String password) {
-        if (port.isEmpty())
-            port = "3306";
-        try {
-            this.connection = DriverManager.getConnection(String.format("jdbc:mysql://%s:%s/%s?autoReconnect=true&create=true", host, port, database), username, password);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        this(host, port, database, username, password, 10);
     }
 
     /**
-     * Checks if the current connection is active
+     * Initializes a {@link ConnectionPool} with the provided credentials
      *
-     * @return true if the action didn't die yet - false if it died
+     * @param host           mysql server host address
+     * @param port           mysql server port (default: 3306)
+     * @param database       initial database the connection uses
+     * @param username       mysql database username
+     * @param password       mysql database password
+     * @param maxConnections maximum count of connections used concurrently
+     */
+    public DatabaseUtil(String host, String port, String database, String username, String password, int maxConnections) {
+        this(ConnectionPool.builder(String.format("jdbc:mysql://%s:%s/%s?create=true", host, port.isEmpty() ? "3306" : port, database))
+                .credentials(username, password)
+                .minSize(1)
+                .maxSize(maxConnections)
+                .statementCacheSize(32)
+                .build());
+    }
+
+    /**
+     * Uses an already configured {@link ConnectionPool}
+     *
+     * @param pool the pool every statement borrows its connection from
+     */
+    public DatabaseUtil(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Checks if the connection pool is active
+     *
+     * @return true if the pool didn't get closed yet - false if it was closed
      */
     public boolean isConnectionActive() {
-        return this.connection != null;
+        return this.pool != null && !this.pool.isClosed();
+    }
+
+    /**
+     * @return the {@link ConnectionPool} every statement borrows its connection from
+     */
+    public ConnectionPool getPool() {
+        return pool;
     }
 
     /**
@@ -79,65 +123,287 @@ public class DatabaseUtil {
      * @return a {@link Integer} that represents the count of manipulations or the result of the executed statement (see {@link java.sql.PreparedStatement#executeUpdate()} and {@link java.sql.Statement#execute(String)})
      */
     public int execute(String sql, Object... parameters) {
+        long start = System.nanoTime();
         if (parameters == null) {
-            try (Statement st = this.connection.createStatement()) {
-                return st.execute(sql) ? 1 : 0;
+            try (Connection connection = this.pool.getConnection();
+                 Statement st = connection.createStatement()) {
+                int result = st.execute(sql) ? 1 : 0;
+                invalidateCache(sql);
+                record(sql, start, 0, false);
+                return result;
             } catch (SQLException e) {
+                record(sql, start, 0, true);
                 e.printStackTrace();
             }
         } else {
-            try (PreparedStatement ps = this.connection.prepareStatement(sql)) {
+            try (Connection connection = this.pool.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(sql)) {
                 for (int i = 0; i < parameters.length; i++) {
                     ps.setObject(i + 1, parameters[i]);
                 }
-                return ps.executeUpdate();
+                int result = ps.executeUpdate();
+                invalidateCache(sql);
+                record(sql, start, result, false);
+                return result;
             } catch (SQLException e) {
+                record(sql, start, 0, true);
                 e.printStackTrace();
             }
         }
         return 0;
     }
 
+    /**
+     * Executes a sql statement once for every given parameter set using a jdbc batch inside one transaction
+     *
+     * @param sql  the sql statement to execute
+     * @param rows the parameter sets in the order they are inserted into the statement
+     * @return the count of manipulations of every row or an empty array if the batch failed and was rolled back
+     */
+    public int[] executeBatch(String sql, List<Object[]> rows) {
+        long start = System.nanoTime();
+        try (Connection connection = this.pool.getConnection()) {
+            int[] result = BatchWriter.executeBatch(connection, sql, rows, 1000);
+            invalidateCache(sql);
+            record(sql, start, rows.size(), false);
+            return result;
+        } catch (SQLException e) {
+            record(sql, start, 0, true);
+            e.printStackTrace();
+        }
+        return new int[0];
+    }
+
+    /**
+     * @return a new {@link DatabaseInitializer} running its setup on the pool of this instance
+     */
+    public DatabaseInitializer initializer() {
+        return new DatabaseInitializer(this.pool, SqlDialect.fromUrl(this.pool.getUrl()));
+    }
+
+    /**
+     * Creates every missing table and index of the given schemas, see {@link TableSchema#ensure(Connection, SqlDialect)}
+     *
+     * @param schemas the tables that have to exist
+     * @return the executed ddl statements or null if one failed
+     */
+    public List<String> ensureSchema(TableSchema... schemas) {
+        List<String> executed = new ArrayList<>();
+        try (Connection connection = this.pool.getConnection()) {
+            for (TableSchema schema : schemas) {
+                executed.addAll(schema.ensure(connection, SqlDialect.fromUrl(this.pool.getUrl())));
+            }
+            return executed;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Runs the given work inside one transaction with the default isolation level of the database
+     *
+     * @see #inTransaction(int, Transaction.Work)
+     */
+    public <T> T inTransaction(Transaction.Work<T> work) {
+        return inTransaction(Transaction.DEFAULT_ISOLATION, work);
+    }
+
+    /**
+     * Runs the given work inside one transaction, it is committed once the work returns and rolled back if it throws.
+     * Deadlocks and serialization failures are retried up to 3 times.
+     *
+     * @param isolation one of the {@link Connection} TRANSACTION constants or {@link Transaction#DEFAULT_ISOLATION}
+     * @param work      the statements to run
+     * @return the result of the work or null if the transaction failed and was rolled back
+     */
+    public <T> T inTransaction(int isolation, Transaction.Work<T> work) {
+        long start = System.nanoTime();
+        try {
+            T result = Transaction.run(this.pool::getConnection, isolation, 3, work, executed -> executed.forEach(this::invalidateCache));
+            record("<transaction>", start, 0, false);
+            return result;
+        } catch (SQLException e) {
+            record("<transaction>", start, 0, true);
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Creates a {@link WriteBehindQueue} writing through the pool of this instance,
+     * cached queries are invalidated once the queued writes reached the database
+     *
+     * @param flushInterval time between two flushes
+     * @param unit          unit of the flush interval
+     * @param journal       file every write is appended to before it is acknowledged, null disables the journal
+     */
+    public WriteBehindQueue writeBehind(long flushInterval, TimeUnit unit, Path journal) {
+        WriteBehindQueue queue = new WriteBehindQueue(this.pool, flushInterval, unit, journal);
+        queue.setFlushListener(this::invalidateCache);
+        return queue;
+    }
+
     /**
      * Runs a sql query statement over the connected database
      *
      * @param sql        the sql statement to run
      * @param parameters the parameters in the order they are inserted into the statement
-     * @return a {@link com.google.common.collect.Table} containing the data the query returned
+     * @return a {@link com.google.common.collect.Table} containing the data the query returned, immutable if it came from the query cache
      */
     public Table<Integer, String, Object> query(String sql, Object... parameters) {
         if (parameters == null)
             return null;
-        try (PreparedStatement ps = this.connection.prepareStatement(sql)) {
+        QueryCache<Table<Integer, String, Object>> cache = this.queryCache;
+        if (cache != null)
+            return cache.get(sql, parameters, () -> {
+                Table<Integer, String, Object> table = load(sql, parameters);
+                return table == null ? null : ImmutableTable.copyOf(table);
+            });
+        return load(sql, parameters);
+    }
+
+    private Table<Integer, String, Object> load(String sql, Object... parameters) {
+        long start = System.nanoTime();
+        try (Connection connection = this.pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             for (int i = 0; i < parameters.length; i++) {
                 ps.setObject(i + 1, parameters[i]);
             }
-            ResultSet rs = ps.executeQuery();
-            HashBasedTable<Integer, String, Object> table = HashBasedTable.create();
-            while (rs.next()) {
+            try (ResultSet rs = ps.executeQuery()) {
                 ResultSetMetaData metaData = rs.getMetaData();
-                for (int i = 1; i < metaData.getColumnCount(); i++) {
-                    String column = metaData.getColumnName(i);
-                    table.put(i, column, rs.getObject(column));
+                int columnCount = metaData.getColumnCount();
+                String[] columns = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
                 }
+                HashBasedTable<Integer, String, Object> table = HashBasedTable.create();
+                int row = 0;
+                while (rs.next()) {
+                    row++;
+                    for (int i = 0; i < columnCount; i++) {
+                        Object value = rs.getObject(i + 1);
+                        if (value != null)
+                            table.put(row, columns[i], value);
+                    }
+                }
+                record(sql, start, row, false);
+                return table;
             }
-            return table;
         } catch (SQLException e) {
+            record(sql, start, 0, true);
             e.printStackTrace();
         }
         return null;
     }
 
     /**
-     * Closes the active database connection
+     * Runs a sql query statement and maps every row onto an instance of the given class
+     *
+     * @param sql        the sql statement to run
+     * @param type       the class rows are mapped onto, see {@link BeanRowMapper}
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return a {@link List} containing a mapped instance for every row or null if the query failed
      */
-    public void closeConnection() {
+    public <T> List<T> queryAs(String sql, Class<T> type, Object... parameters) {
+        BeanRowMapper<T> mapper = BeanRowMapper.of(type);
+        List<T> result = new ArrayList<>();
+        return forEachRow(sql, 0, row -> result.add(mapper.map(row)), parameters) ? result : null;
+    }
+
+    /**
+     * Runs a sql query statement and returns a cursor over its rows instead of copying them into a {@link Table}
+     *
+     * @param sql        the sql statement to run
+     * @param fetchSize  count of rows the driver fetches per round-trip, 0 uses the driver default
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return an open {@link RowCursor} that has to be closed, or null if the query failed
+     */
+    public RowCursor cursor(String sql, int fetchSize, Object... parameters) {
         try {
-            this.connection.close();
+            return RowCursor.open(this.pool, sql, fetchSize, parameters);
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        this.connection = null;
+        return null;
+    }
+
+    /**
+     * Runs a sql query statement and calls the given callback for every row without keeping previous rows in memory
+     *
+     * @param sql        the sql statement to run
+     * @param fetchSize  count of rows the driver fetches per round-trip, 0 uses the driver default
+     * @param callback   receives the reused {@link RowCursor} positioned on each row
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return true if every row was read - false if the query failed
+     */
+    public boolean forEachRow(String sql, int fetchSize, RowCursor.RowCallback callback, Object... parameters) {
+        long start = System.nanoTime();
+        long[] rows = {0};
+        try {
+            RowCursor.open(this.pool, sql, fetchSize, parameters).forEach(row -> {
+                rows[0]++;
+                callback.accept(row);
+            });
+            record(sql, start, rows[0], false);
+            return true;
+        } catch (SQLException e) {
+            record(sql, start, rows[0], true);
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Enables caching of {@link #query(String, Object...)} results, every statement run through this instance
+     * invalidates the cached results of the tables it touches
+     *
+     * @param queryCache the cache to use or null to disable caching
+     */
+    public void setQueryCache(QueryCache<Table<Integer, String, Object>> queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * @return the query cache or null if caching is disabled
+     */
+    public QueryCache<Table<Integer, String, Object>> getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Enables recording of latency, row and error counts of every statement run through this instance
+     *
+     * @param metrics the metrics to record to or null to disable recording
+     */
+    public void setMetrics(DatabaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the metrics statements are recorded to or null if recording is disabled
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void record(String sql, long start, long rows, boolean failed) {
+        DatabaseMetrics metrics = this.metrics;
+        if (metrics != null)
+            metrics.record(sql, start, rows, failed);
+    }
+
+    private void invalidateCache(String sql) {
+        QueryCache<Table<Integer, String, Object>> cache = this.queryCache;
+        if (cache != null)
+            cache.invalidate(sql);
+    }
+
+    /**
+     * Closes the connection pool and every idle connection
+     */
+    public void closeConnection() {
+        this.pool.close();
     }
 
 
@@ -0,0 +1,116 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free latency histogram with logarithmic buckets in the style of HdrHistogram.
+ * <br>
+ * Every power of two is split into 32 linear sub buckets, so a recorded value is off by at most about 3% while the
+ * histogram needs a fixed amount of memory for values from 1 nanosecond up to more than 2 hours.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 37;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos the measured latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        totalCount.increment();
+        totalNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) ;
+    }
+
+    /**
+     * @return count of recorded values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * @return the largest recorded value in the given unit
+     */
+    public double getMax(TimeUnit unit) {
+        return toUnit(maxNanos.get(), unit);
+    }
+
+    /**
+     * @return the arithmetic mean of every recorded value in the given unit
+     */
+    public double getMean(TimeUnit unit) {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : toUnit(totalNanos.sum(), unit) / count;
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100
+     * @return the smallest value at least the given percentage of recorded values are less than or equal to
+     */
+    public double getPercentile(double percentile, TimeUnit unit) {
+        long count = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target)
+                return toUnit(Math.min(highestValueOf(i), maxNanos.get()), unit);
+        }
+        return getMax(unit);
+    }
+
+    /**
+     * Drops every recorded value
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int shift = Math.min(MAX_SHIFT, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (int) Math.min(BUCKETS - 1, shift * SUB_BUCKETS + (value >>> shift));
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    private static double toUnit(long nanos, TimeUnit unit) {
+        return (double) nanos / unit.toNanos(1);
+    }
+
+}
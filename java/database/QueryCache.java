@@ -0,0 +1,269 @@
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A read-through cache for query results keyed by sql text and parameters.
+ * <br>
+ * How to use:
+ * <pre>
+ *   databaseUtil.setQueryCache(new QueryCache&lt;&gt;(10_000, 5, TimeUnit.MINUTES));
+ *
+ *   databaseUtil.query("SELECT price FROM shop WHERE item=?", "diamond"); // loaded from the database
+ *   databaseUtil.query("SELECT price FROM shop WHERE item=?", "diamond"); // served from the cache
+ *   databaseUtil.execute("UPDATE shop SET price=? WHERE item=?", 10, "diamond"); // invalidates every cached query reading 'shop'
+ * </pre>
+ * <br>
+ * Results are evicted least recently used once the maximum size is reached and expire after the given time to live.
+ * The tables a query reads are taken from its FROM lists and JOIN clauses, a write invalidates every cached result of
+ * the tables named after INTO, UPDATE, FROM, TABLE, TRUNCATE or USING in its sql. A write naming no table the cache
+ * recognizes invalidates every cached result. Table names are compared without quotes, case and schema, so a write to
+ * {@code public.shop} invalidates a query reading {@code shop}. A result loaded while one of its tables is
+ * invalidated is returned but not kept. Hits, misses, evictions and load times are available through {@link #getStats()}.
+ * <br>
+ * This class uses <a href="https://github.com/google/guava">Google Guava Java Library</a> like {@link DatabaseUtil}.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class QueryCache<V> {
+
+    private static final String NAME = "[`\"\\[]?[\\w$]+[`\"\\]]?(?:\\s*\\.\\s*[`\"\\[]?[\\w$]+[`\"\\]]?)*";
+    private static final Pattern TABLE_PATTERN = Pattern.compile("\\b(FROM|JOIN|INTO|UPDATE|TRUNCATE(?:\\s+TABLE)?|TABLE|USING)\\s+(?:IF\\s+(?:NOT\\s+)?EXISTS\\s+)?(?!(?:SET|SELECT|VALUES)\\b)(" + NAME + ")", Pattern.CASE_INSENSITIVE);
+    // the next table of a comma separated list, an alias may stand between, e.g. "FROM shop s, prices p"
+    private static final Pattern LIST_PATTERN = Pattern.compile("(?:\\s+(?:AS\\s+)?(?!(?:WHERE|JOIN|INNER|LEFT|RIGHT|FULL|CROSS|NATURAL|ON|USING|GROUP|ORDER|HAVING|LIMIT|OFFSET|UNION|EXCEPT|INTERSECT|SET|WINDOW|FETCH|FOR|RETURNING)\\b)[\\w$]+)?\\s*,\\s*(" + NAME + ")", Pattern.CASE_INSENSITIVE);
+
+    // statements that only read, they never invalidate anything even if no table is found in them
+    private static final Pattern READ_PATTERN = Pattern.compile("^\\s*(?:SELECT|SHOW|EXPLAIN|DESCRIBE|VALUES)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Cache<Key, Entry<V>> cache;
+    // every load registers its own entry, so the removal of an older entry never unindexes a newer one of the same key
+    private final Map<String, Map<Key, Entry<V>>> keysByTable = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versionsByTable = new ConcurrentHashMap<>();
+    private final AtomicLong versionOfAll = new AtomicLong();
+    private final Cache<String, Set<String>> tablesBySql = CacheBuilder.newBuilder().maximumSize(1024).build();
+
+    /**
+     * @param maximumSize maximum count of cached results
+     * @param timeToLive  time after which a cached result is loaded again
+     * @param unit        unit of the time to live
+     */
+    public QueryCache(long maximumSize, long timeToLive, TimeUnit unit) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit)
+                .recordStats()
+                .<Key, Entry<V>>removalListener(notification -> unindex(notification.getKey(), notification.getValue()))
+                .build();
+    }
+
+    /**
+     * Returns the cached result of the given query or loads and caches it
+     *
+     * @param sql        the sql statement of the query
+     * @param parameters the parameters of the query
+     * @param loader     runs the query, a null result is returned but not cached
+     * @return the cached or loaded result
+     */
+    public V get(String sql, Object[] parameters, Callable<V> loader) {
+        Key key = new Key(sql, parameters);
+        long[] loadedAtVersion = {-1L};
+        try {
+            Entry<V> result = cache.get(key, () -> {
+                Set<String> tables = tablesOf(sql);
+                Entry<V> entry = new Entry<>();
+                // the key is registered before loading, so a write during the load either finds it or changes the version
+                loadedAtVersion[0] = versionOf(tables);
+                for (String table : tables) {
+                    keysByTable.computeIfAbsent(table, t -> new ConcurrentHashMap<>()).put(key, entry);
+                }
+                entry.value = loader.call();
+                if (entry.value == null) {
+                    unindex(key, entry);
+                    throw new NotCacheable();
+                }
+                return entry;
+            });
+            // invalidating a key that is still loading has no effect, so a result loaded across a write is dropped here
+            if (loadedAtVersion[0] >= 0 && versionOf(tablesOf(sql)) != loadedAtVersion[0])
+                cache.invalidate(key);
+            return result.value;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof NotCacheable)
+                return null;
+            throw new IllegalStateException("There was an error loading a cached query", e.getCause());
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Invalidates every cached result that read one of the tables the given statement touches,
+     * or every cached result if no table is found in a statement that does not only read
+     *
+     * @param sql a statement that changed data
+     */
+    public void invalidate(String sql) {
+        Set<String> tables = tablesOf(sql);
+        if (tables.isEmpty() && !READ_PATTERN.matcher(sql).lookingAt()) {
+            invalidateAll();
+            return;
+        }
+        for (String table : tables) {
+            invalidateTable(table);
+        }
+    }
+
+    /**
+     * Invalidates every cached result that read the given table
+     *
+     * @param table the case insensitive table name, a schema or quotes are ignored
+     */
+    public void invalidateTable(String table) {
+        String name = normalize(table);
+        versionsByTable.computeIfAbsent(name, t -> new AtomicLong()).incrementAndGet();
+        // the keys leave the index through the removal listener, keys that are still loading stay registered
+        Map<Key, Entry<V>> keys = keysByTable.get(name);
+        if (keys != null)
+            cache.invalidateAll(new ArrayList<>(keys.keySet()));
+    }
+
+    /**
+     * Invalidates every cached result
+     */
+    public void invalidateAll() {
+        versionOfAll.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return count of cached results
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return hit and miss counts, hit rate, eviction count and load times since this cache was created
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the tables the sql touches, taken from a bounded cache of recently parsed sql
+     */
+    private Set<String> tablesOf(String sql) {
+        Set<String> tables = tablesBySql.getIfPresent(sql);
+        if (tables == null) {
+            Set<String> parsed = new HashSet<>();
+            Matcher matcher = TABLE_PATTERN.matcher(sql);
+            Matcher list = LIST_PATTERN.matcher(sql);
+            while (matcher.find()) {
+                parsed.add(normalize(matcher.group(2)));
+                if (!matcher.group(1).equalsIgnoreCase("FROM") && !matcher.group(1).equalsIgnoreCase("UPDATE"))
+                    continue;
+                list.region(matcher.end(), sql.length());
+                while (list.lookingAt()) {
+                    parsed.add(normalize(list.group(1)));
+                    list.region(list.end(), sql.length());
+                }
+            }
+            tables = Collections.unmodifiableSet(parsed);
+            tablesBySql.put(sql, tables);
+        }
+        return tables;
+    }
+
+    /**
+     * @return the unquoted lower case name without its schema, so "Public"."Shop" and shop are the same table
+     */
+    private static String normalize(String table) {
+        String name = table.replaceAll("[`\"\\[\\]\\s]", "");
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the sum of the invalidation counts of the tables and of the whole cache, it changes whenever one of them is invalidated
+     */
+    private long versionOf(Set<String> tables) {
+        long version = versionOfAll.get();
+        for (String table : tables) {
+            AtomicLong tableVersion = versionsByTable.get(table);
+            if (tableVersion != null)
+                version += tableVersion.get();
+        }
+        return version;
+    }
+
+    /**
+     * Removes the key from the index only while it is still registered by the given entry,
+     * a removal notification may arrive after a newer load of the same key registered its own entry
+     */
+    private void unindex(Key key, Entry<V> entry) {
+        if (key == null || entry == null)
+            return;
+        for (String table : tablesOf(key.sql)) {
+            Map<Key, Entry<V>> keys = keysByTable.get(table);
+            if (keys != null)
+                keys.remove(key, entry);
+        }
+    }
+
+    /**
+     * A cached result together with the identity of the load that produced it
+     */
+    private static class Entry<V> {
+
+        private V value;
+    }
+
+    private static class NotCacheable extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private NotCacheable() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static class Key {
+
+        private final String sql;
+        private final Object[] parameters;
+        private final int hash;
+
+        private Key(String sql, Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters == null ? new Object[0] : parameters.clone();
+            this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(this.parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return hash == key.hash && sql.equals(key.sql) && Arrays.deepEquals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
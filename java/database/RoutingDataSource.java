@@ -0,0 +1,244 @@
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Splits reads and writes between a primary {@link ConnectionPool} and the pools of its read replicas.
+ * <br>
+ * How to use:
+ * <pre>
+ *   RoutingDataSource routing = new RoutingDataSource(primaryPool, Arrays.asList(replicaPool1, replicaPool2),
+ *           RoutingDataSource.Strategy.LEAST_LOADED, 2, TimeUnit.SECONDS);
+ *
+ *   try (Connection connection = routing.getConnection()) {
+ *       // writes always run on the primary
+ *   }
+ *   try (Connection connection = routing.getReadConnection()) {
+ *       // reads run on a replica
+ *   }
+ * </pre>
+ * <br>
+ * After a thread borrowed a connection from the primary its reads keep going to the primary for the read-your-writes
+ * window, so a caller does not miss its own write because a replica lags behind. Stickiness is tracked per thread,
+ * a write and a read issued from different threads are not routed together.
+ * <br>
+ * If a replica can not be reached the next one is tried and finally the primary, so reads keep working while replicas are down.
+ * A replica that failed is skipped for the replica backoff, so reads do not wait for its timeout again and again.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class RoutingDataSource implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("RoutingDataSource");
+
+    public enum Strategy {
+        /**
+         * Every read goes to the next replica in turn
+         */
+        ROUND_ROBIN,
+        /**
+         * Every read goes to the replica with the lowest share of borrowed connections
+         */
+        LEAST_LOADED
+    }
+
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final Strategy strategy;
+    private final long readYourWritesMillis;
+    private final long replicaBackoffMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLongArray unhealthyUntil;
+    private final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * @param primary        pool of the primary every write runs on
+     * @param replicas       pools of the read replicas, may be empty to read from the primary
+     * @param strategy       how a replica is picked for a read
+     * @param readYourWrites time reads of a thread stay on the primary after it wrote, 0 disables stickiness
+     * @param unit           unit of the read-your-writes window
+     */
+    public RoutingDataSource(ConnectionPool primary, List<ConnectionPool> replicas, Strategy strategy, long readYourWrites, TimeUnit unit) {
+        this(primary, replicas, strategy, readYourWrites, unit.convert(30, TimeUnit.SECONDS), unit);
+    }
+
+    /**
+     * @param primary        pool of the primary every write runs on
+     * @param replicas       pools of the read replicas, may be empty to read from the primary
+     * @param strategy       how a replica is picked for a read
+     * @param readYourWrites time reads of a thread stay on the primary after it wrote, 0 disables stickiness
+     * @param replicaBackoff time a replica is skipped after borrowing from it failed (default: 30 seconds)
+     * @param unit           unit of the read-your-writes window and the replica backoff
+     */
+    public RoutingDataSource(ConnectionPool primary, List<ConnectionPool> replicas, Strategy strategy, long readYourWrites, long replicaBackoff, TimeUnit unit) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.strategy = strategy;
+        this.readYourWritesMillis = unit.toMillis(readYourWrites);
+        this.replicaBackoffMillis = unit.toMillis(replicaBackoff);
+        this.unhealthyUntil = new AtomicLongArray(this.replicas.size());
+    }
+
+    /**
+     * Borrows a connection from the primary and starts the read-your-writes window of the calling thread
+     *
+     * @return a connection to the primary
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = primary.getConnection();
+        if (readYourWritesMillis > 0)
+            lastWrite.get()[0] = System.currentTimeMillis();
+        return connection;
+    }
+
+    /**
+     * Not supported, the credentials are fixed when the pools are built
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The credentials of the pools are fixed when they are built");
+    }
+
+    /**
+     * Borrows a connection for a read, from the primary while the calling thread is inside its read-your-writes window
+     * or no healthy replica is reachable, otherwise from a replica chosen by the strategy
+     *
+     * @return a connection only suitable for reads
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty() || isSticky())
+            return primary.getConnection();
+        int size = replicas.size();
+        int first = strategy == Strategy.LEAST_LOADED ? leastLoaded() : Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % size;
+            ConnectionPool replica = replicas.get(index);
+            if (replica.isClosed() || !isHealthy(index))
+                continue;
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                unhealthyUntil.set(index, System.currentTimeMillis() + replicaBackoffMillis);
+                LOGGER.log(Level.WARNING, "The replica {0} is unavailable, it is skipped for {1}ms\n{2}", new Object[]{replica.getUrl(), replicaBackoffMillis, e.getMessage()});
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * @return false while the replica at the given index is inside the backoff of its last failure
+     */
+    private boolean isHealthy(int index) {
+        return System.currentTimeMillis() >= unhealthyUntil.get(index);
+    }
+
+    private boolean isSticky() {
+        return readYourWritesMillis > 0 && System.currentTimeMillis() - lastWrite.get()[0] < readYourWritesMillis;
+    }
+
+    private int leastLoaded() {
+        int size = replicas.size();
+        int offset = Math.floorMod(next.getAndIncrement(), size);
+        int best = offset;
+        double bestLoad = Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int index = (offset + i) % size;
+            ConnectionPool replica = replicas.get(index);
+            if (!isHealthy(index))
+                continue;
+            double load = (double) replica.getActiveConnections() / replica.getMaxSize();
+            if (load < bestLoad) {
+                bestLoad = load;
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Ends the read-your-writes window of the calling thread, so its next read goes to a replica again
+     */
+    public void clearReadYourWrites() {
+        lastWrite.get()[0] = 0;
+    }
+
+    public ConnectionPool getPrimary() {
+        return primary;
+    }
+
+    public List<ConnectionPool> getReplicas() {
+        return replicas;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return true if the primary pool has been closed
+     */
+    public boolean isClosed() {
+        return primary.isClosed();
+    }
+
+    /**
+     * Closes the primary and every replica pool
+     */
+    @Override
+    public void close() {
+        for (ConnectionPool replica : replicas) {
+            replica.close();
+        }
+        primary.close();
+    }
+
+    //region DataSource
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("RoutingDataSource does not wrap " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+    //endregion
+
+}
@@ -0,0 +1,281 @@
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A forward only view over the rows of a query that holds its pooled connection until it is closed.
+ * <br>
+ * How to use:
+ * <pre>
+ *   try (RowCursor cursor = databaseUtil.cursor("SELECT id, name, score FROM leaderboard ORDER BY score DESC", 1000)) {
+ *       while (cursor.next()) {
+ *           export(cursor.getLong(1), cursor.getString(2), cursor.getInt(3));
+ *       }
+ *   }
+ * </pre>
+ * <br>
+ * The cursor itself is the row view, its getters read the current row by column index without copying it, so a
+ * scan of any size runs in constant memory. Values have to be copied out before {@link #next()} is called again.
+ * <br>
+ * A fetch size above 0 is passed to {@link Statement#setFetchSize(int)} and disables auto commit for the lifetime
+ * of the cursor, which PostgreSQL requires to stream rows. MySQL only streams with {@link Integer#MIN_VALUE}
+ * as fetch size or {@code useCursorFetch=true} in the connection url.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class RowCursor implements AutoCloseable {
+
+    private final String sql;
+    private final Connection connection;
+    private final boolean ownsConnection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final ResultSetMetaData metaData;
+    private final int columnCount;
+    private Map<String, Integer> columnIndexes;
+
+    private RowCursor(String sql, Connection connection, boolean ownsConnection, PreparedStatement statement, ResultSet resultSet) throws SQLException {
+        this.sql = sql;
+        this.connection = connection;
+        this.ownsConnection = ownsConnection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.metaData = resultSet.getMetaData();
+        this.columnCount = metaData.getColumnCount();
+    }
+
+    /**
+     * Borrows a connection and runs the given query
+     *
+     * @param dataSource the source the connection is borrowed from, it is handed back when the cursor is closed
+     * @param sql        the sql statement to run
+     * @param fetchSize  count of rows the driver fetches per round-trip, 0 uses the driver default
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return an open {@link RowCursor} positioned before the first row
+     */
+    public static RowCursor open(DataSource dataSource, String sql, int fetchSize, Object... parameters) throws SQLException {
+        return open(dataSource.getConnection(), sql, fetchSize, parameters);
+    }
+
+    /**
+     * Runs the given query on a connection that is closed together with the cursor
+     *
+     * @param connection the connection to run the query on, it is closed when the cursor is closed or opening failed
+     * @param sql        the sql statement to run
+     * @param fetchSize  count of rows the driver fetches per round-trip, 0 uses the driver default
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return an open {@link RowCursor} positioned before the first row
+     */
+    public static RowCursor open(Connection connection, String sql, int fetchSize, Object... parameters) throws SQLException {
+        return open(connection, true, sql, fetchSize, parameters);
+    }
+
+    /**
+     * Runs the given query on a connection that stays open when the cursor is closed, e.g. inside a {@link Transaction}
+     *
+     * @param connection the connection to run the query on
+     * @param sql        the sql statement to run
+     * @param fetchSize  count of rows the driver fetches per round-trip, 0 uses the driver default
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return an open {@link RowCursor} positioned before the first row
+     */
+    public static RowCursor openShared(Connection connection, String sql, int fetchSize, Object... parameters) throws SQLException {
+        return open(connection, false, sql, fetchSize, parameters);
+    }
+
+    private static RowCursor open(Connection connection, boolean ownsConnection, String sql, int fetchSize, Object... parameters) throws SQLException {
+        PreparedStatement statement = null;
+        try {
+            if (fetchSize > 0 && ownsConnection)
+                connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize != 0)
+                statement.setFetchSize(fetchSize);
+            for (int i = 0; parameters != null && i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return new RowCursor(sql, connection, ownsConnection, statement, statement.executeQuery());
+        } catch (SQLException | RuntimeException e) {
+            if (statement != null)
+                statement.close();
+            if (ownsConnection)
+                connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next row
+     *
+     * @return true if there is a current row - false if the end of the result was reached
+     */
+    public boolean next() throws SQLException {
+        return resultSet.next();
+    }
+
+    /**
+     * @return the sql statement this cursor was opened with
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return count of columns every row has
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @param column index of the column starting at 1
+     * @return the label of the column
+     */
+    public String getColumnName(int column) throws SQLException {
+        return metaData.getColumnLabel(column);
+    }
+
+    /**
+     * Resolves a column label to its index, the lookup table is built once per cursor
+     *
+     * @param label the case insensitive column label
+     * @return the index of the column starting at 1
+     * @throws SQLException if there is no column with the given label
+     */
+    public int findColumn(String label) throws SQLException {
+        if (columnIndexes == null) {
+            columnIndexes = new HashMap<>();
+            for (int i = columnCount; i >= 1; i--) {
+                columnIndexes.put(metaData.getColumnLabel(i).toLowerCase(), i);
+            }
+        }
+        Integer index = columnIndexes.get(label.toLowerCase());
+        if (index == null)
+            throw new SQLException("The result contains no column labeled " + label);
+        return index;
+    }
+
+    public int getInt(int column) throws SQLException {
+        return resultSet.getInt(column);
+    }
+
+    public long getLong(int column) throws SQLException {
+        return resultSet.getLong(column);
+    }
+
+    public double getDouble(int column) throws SQLException {
+        return resultSet.getDouble(column);
+    }
+
+    public float getFloat(int column) throws SQLException {
+        return resultSet.getFloat(column);
+    }
+
+    public boolean getBoolean(int column) throws SQLException {
+        return resultSet.getBoolean(column);
+    }
+
+    public String getString(int column) throws SQLException {
+        return resultSet.getString(column);
+    }
+
+    public byte[] getBytes(int column) throws SQLException {
+        return resultSet.getBytes(column);
+    }
+
+    public Timestamp getTimestamp(int column) throws SQLException {
+        return resultSet.getTimestamp(column);
+    }
+
+    public Object getObject(int column) throws SQLException {
+        return resultSet.getObject(column);
+    }
+
+    /**
+     * @return true if the last primitive getter read a sql NULL
+     */
+    public boolean wasNull() throws SQLException {
+        return resultSet.wasNull();
+    }
+
+    /**
+     * @return the underlying {@link ResultSet} for getters this view does not offer
+     */
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    /**
+     * Calls the given callback for every remaining row and closes the cursor afterwards
+     *
+     * @param callback receives this cursor positioned on each row
+     */
+    public void forEach(RowCallback callback) throws SQLException {
+        try {
+            while (resultSet.next()) {
+                callback.accept(this);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Maps every remaining row lazily, closing the returned {@link Stream} closes this cursor
+     *
+     * @param mapper creates a value from the current row
+     * @return a sequential {@link Stream} of the mapped rows
+     */
+    public <T> Stream<T> stream(RowMapper<T> mapper) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next())
+                        return false;
+                    action.accept(mapper.map(RowCursor.this));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("There was an error reading the next row", e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Closes the result and hands the connection back unless it was opened with {@link #openShared(Connection, String, int, Object...)}
+     */
+    @Override
+    public void close() {
+        try {
+            resultSet.close();
+            statement.close();
+        } catch (SQLException ignored) {
+        } finally {
+            try {
+                if (ownsConnection)
+                    connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowCallback {
+        void accept(RowCursor row) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(RowCursor row) throws SQLException;
+    }
+
+}
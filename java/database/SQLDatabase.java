@@ -1,8 +1,19 @@
 import lombok.Getter;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +41,12 @@ public class VariousSQLDatabase {
         public Oracle(String driverType, String host, String port, String serviceName, String username, String password) {
             this.connectionString = String.format("jdbc:oracle:%s:%s/%s@%s:%s/%s", driverType, username, password, host, port, serviceName);
         }
+
+        @Override
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            // Oracle has no multi row VALUES syntax
+            return BulkLoader.singleTransaction(1000);
+        }
     }
 
     /**
@@ -42,11 +59,112 @@ public class VariousSQLDatabase {
      * </dependency>
      */
     static class SQLite extends Connectable {
+
+        private final boolean performanceProfile;
+        private SQLiteWriteQueue writeQueue;
+        private ConnectionPool legacyPool;
+
         /**
          * @param fileName the path and filename to the sqlite file
          */
         public SQLite(String fileName) {
+            this(fileName, false);
+        }
+
+        /**
+         * @param fileName           the path and filename to the sqlite file
+         * @param performanceProfile true to open the file in WAL mode with synchronous=NORMAL, a 256 MiB memory map and a
+         *                           64 MiB page cache. Writes then share one connection while queries run on separate
+         *                           read-only connections, so readers never block the writer. The deprecated
+         *                           {@link #getConnection()} gets a connection of its own, so it never pins the writer.
+         */
+        public SQLite(String fileName, boolean performanceProfile) {
             this.connectionString = String.format("jdbc:sqlite:%s", fileName);
+            this.performanceProfile = performanceProfile;
+        }
+
+        @Override
+        public void openConnection(int maxConnections) {
+            if (!performanceProfile) {
+                super.openConnection(maxConnections);
+                return;
+            }
+            ConnectionPool writer = configurePool(tune(ConnectionPool.builder(connectionString).initSql("PRAGMA journal_mode=WAL"))
+                    .minSize(1).maxSize(1).statementCacheSize(32)).build();
+            ConnectionPool readers = configurePool(tune(ConnectionPool.builder(connectionString).property("open_mode", "1"))
+                    .minSize(1).maxSize(maxConnections).statementCacheSize(32)).build();
+            synchronized (this) {
+                legacyPool = configurePool(tune(ConnectionPool.builder(connectionString)).minSize(0).maxSize(1)).build();
+            }
+            openConnection(new RoutingDataSource(writer, Collections.singletonList(readers), RoutingDataSource.Strategy.ROUND_ROBIN, 0, TimeUnit.MILLISECONDS));
+        }
+
+        /**
+         * The writer pool of the performance profile holds a single connection, a legacy caller keeping it would stall
+         * every other write. It gets a connection of a separate pool instead, SQLite serializes its writes through the busy timeout.
+         */
+        @Override
+        protected Connection borrowShared() throws SQLException {
+            ConnectionPool legacy;
+            synchronized (this) {
+                legacy = legacyPool;
+            }
+            return legacy == null ? super.borrowShared() : legacy.getConnection();
+        }
+
+        private static ConnectionPool.Builder tune(ConnectionPool.Builder builder) {
+            return builder
+                    .initSql("PRAGMA synchronous=NORMAL")
+                    .initSql("PRAGMA mmap_size=268435456")
+                    .initSql("PRAGMA cache_size=-65536")
+                    .initSql("PRAGMA busy_timeout=5000")
+                    .initSql("PRAGMA temp_store=MEMORY");
+        }
+
+        /**
+         * Queues a write on the single writer thread of this database, writes that queue up meanwhile are committed together
+         *
+         * @return a {@link CompletableFuture} completed with the count of manipulations after the write was committed
+         */
+        public CompletableFuture<Integer> enqueue(String sql, Object ... params) {
+            long start = System.nanoTime();
+            return getWriteQueue().execute(sql, params).whenComplete((result, throwable) -> {
+                if (throwable == null)
+                    super.invalidateCache(sql);
+                Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                if (cause instanceof SQLException)
+                    getCircuitBreaker().recordFailure((SQLException) cause);
+                super.record(sql, start, result == null ? 0 : result, throwable != null);
+            });
+        }
+
+        /**
+         * @return the queue {@link #enqueue(String, Object...)} writes through, created on first use
+         */
+        public synchronized SQLiteWriteQueue getWriteQueue() {
+            if (writeQueue == null)
+                writeQueue = new SQLiteWriteQueue(this::borrow, 256, 4096);
+            return writeQueue;
+        }
+
+        @Override
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            return BulkLoader.singleTransaction(1000);
+        }
+
+        @Override
+        public void closeConnection() {
+            synchronized (this) {
+                if (writeQueue != null)
+                    writeQueue.close();
+                writeQueue = null;
+            }
+            super.closeConnection();
+            synchronized (this) {
+                if (legacyPool != null)
+                    legacyPool.close();
+                legacyPool = null;
+            }
         }
     }
 
@@ -82,6 +200,12 @@ public class VariousSQLDatabase {
      * </dependency>
      */
     static class MariaDB extends Connectable {
+        private static final String URL_FORMAT = "jdbc:mariadb://%s:%s/%s?user=%s&password=%s";
+
+        private final String database;
+        private final String username;
+        private final String password;
+
         /**
          * @param host localhost or remote server
          * @param port default 3306 or custom port
@@ -90,7 +214,25 @@ public class VariousSQLDatabase {
          * @param password password to authenticate on the database
          */
         public MariaDB(String host, String port, String database, String username, String password) {
-            this.connectionString = String.format("jdbc:mariadb://%s:%s/%s?user=%s&password=%s", host, port, database, username, password);
+            this.connectionString = String.format(URL_FORMAT, host, port, database, username, password);
+            this.database = database;
+            this.username = username;
+            this.password = password;
+        }
+
+        /**
+         * Adds a read replica of this database that is reached with the same credentials
+         *
+         * @param host host of the replica
+         * @param port port of the replica
+         */
+        public void addReplica(String host, String port) {
+            addReplica(String.format(URL_FORMAT, host, port, database, username, password));
+        }
+
+        @Override
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            return BulkLoader.loadDataLocalInfile();
         }
     }
 
@@ -104,6 +246,12 @@ public class VariousSQLDatabase {
      * </dependency>
      */
     static class PostgreSQL extends Connectable{
+        private static final String URL_FORMAT = "jdbc:postgresql://%s:%s/%s?user=%s&password=%s";
+
+        private final String database;
+        private final String username;
+        private final String password;
+
         /**
          * @param host localhost or remote server
          * @param port default 5432 or custom port
@@ -112,7 +260,25 @@ public class VariousSQLDatabase {
          * @param password password to authenticate on the database
          */
         public PostgreSQL(String host, String port, String database, String username, String password) {
-            this.connectionString = String.format("jdbc:postgresql://%s:%s/%s?user=%s&password=%s", host, port, database, username, password);
+            this.connectionString = String.format(URL_FORMAT, host, port, database, username, password);
+            this.database = database;
+            this.username = username;
+            this.password = password;
+        }
+
+        /**
+         * Adds a read replica of this database that is reached with the same credentials
+         *
+         * @param host host of the replica
+         * @param port port of the replica
+         */
+        public void addReplica(String host, String port) {
+            addReplica(String.format(URL_FORMAT, host, port, database, username, password));
+        }
+
+        @Override
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            return BulkLoader.copy();
         }
     }
 
@@ -137,6 +303,12 @@ public class VariousSQLDatabase {
         public MSSQL(String host, String port, String database, String username, String password) {
             this.connectionString = String.format("jdbc:sqlserver://%s:%s;database=%s;user=%s;password=%s", host, port, database, username, password);
         }
+
+        @Override
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            // SQL Server accepts at most 1000 rows per VALUES clause and 2100 parameters per statement
+            return BulkLoader.multiRowInsert(1000, 2100);
+        }
     }
 
     /**
@@ -149,6 +321,12 @@ public class VariousSQLDatabase {
      * </dependency>
      */
     static class MySQL extends Connectable {
+        private static final String URL_FORMAT = "jdbc:mysql://%s:%s/%s?user=%s&password=%s&autoReconnect=true&useSSL=false&useTimezone=true&serverTimezone=GMT";
+
+        private final String database;
+        private final String username;
+        private final String password;
+
         /**
          * @param host localhost or remote server
          * @param port default 3306 or custom port
@@ -157,7 +335,25 @@ public class VariousSQLDatabase {
          * @param password password to authenticate on the database
          */
         public MySQL(String host, String port, String database, String username, String password) {
-            this.connectionString = String.format("jdbc:mysql://%s:%s/%s?user=%s&password=%s&autoReconnect=true&useSSL=false&useTimezone=true&serverTimezone=GMT", host, port, database, username, password);
+            this.connectionString = String.format(URL_FORMAT, host, port, database, username, password);
+            this.database = database;
+            this.username = username;
+            this.password = password;
+        }
+
+        /**
+         * Adds a read replica of this database that is reached with the same credentials
+         *
+         * @param host host of the replica
+         * @param port port of the replica
+         */
+        public void addReplica(String host, String port) {
+            addReplica(String.format(URL_FORMAT, host, port, database, username, password));
+        }
+
+        @Override
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            return BulkLoader.loadDataLocalInfile();
         }
     }
 
@@ -166,94 +362,635 @@ public class VariousSQLDatabase {
         @Getter
         private final Logger LOGGER = Logger.getLogger("VariousSQLDatabase");
         @Getter
-        private Connection connection;
+        private ConnectionPool pool;
         @Getter
         private AtomicLong instanceId = new AtomicLong();
         @Getter
         protected String connectionString;
+        private DatabaseExecutor executor;
+        private volatile QueryCache<CachedRowSet> queryCache;
+        private volatile DatabaseMetrics metrics;
+        private volatile CircuitBreaker circuitBreaker = new CircuitBreaker(LOGGER, getClass().getSimpleName(), 3, 1, 60, TimeUnit.SECONDS);
+        private Connection connection;
+        @Getter
+        private RoutingDataSource routing;
+        private final List<String> replicaConnectionStrings = new ArrayList<>();
+        private RoutingDataSource.Strategy readStrategy = RoutingDataSource.Strategy.ROUND_ROBIN;
+        private long readYourWritesMillis = 2000;
 
         public void openConnection() {
+            openConnection(10);
+        }
+
+        /**
+         * @param maxConnections maximum count of connections used concurrently
+         */
+        public void openConnection(int maxConnections) {
+            ConnectionPool primary = configurePool(ConnectionPool.builder(connectionString).minSize(1).maxSize(maxConnections).statementCacheSize(32)).build();
+            if (replicaConnectionStrings.isEmpty()) {
+                openConnection(primary);
+                return;
+            }
+            List<ConnectionPool> replicas = new ArrayList<>();
+            for (String replica : replicaConnectionStrings) {
+                replicas.add(configurePool(ConnectionPool.builder(replica).minSize(1).maxSize(maxConnections).statementCacheSize(32)).build());
+            }
+            openConnection(new RoutingDataSource(primary, replicas, readStrategy, readYourWritesMillis, TimeUnit.MILLISECONDS));
+        }
+
+        /**
+         * @param pool an already configured pool every statement borrows its connection from
+         */
+        public void openConnection(ConnectionPool pool) {
+            open(pool, null);
+        }
+
+        /**
+         * @param routing already configured pools, queries borrow from the replicas and every other statement from the primary
+         */
+        public void openConnection(RoutingDataSource routing) {
+            open(routing.getPrimary(), routing);
+        }
+
+        private void open(ConnectionPool pool, RoutingDataSource routing) {
+            this.pool = pool;
+            this.routing = routing;
+            // probed on the executor, so opening the connection does not block the caller while the database is slow to answer
+            getExecutor().submit(() -> {
+                try (Connection connection = borrow()) {
+                    return connection.isValid(1);
+                } catch (SQLException e) {
+                    circuitBreaker.recordFailure(e);
+                    LOGGER.log(Level.SEVERE, "There was an error trying to connect to the database using following connection string\n{0}\n{1}", new Object[] {connectionString, e.getMessage()});
+                }
+                return false;
+            });
+        }
+
+        /**
+         * @return a new {@link DatabaseInitializer} running its setup on the primary pool of this connectable
+         */
+        public DatabaseInitializer initializer() {
+            return new DatabaseInitializer(pool, getDialect());
+        }
+
+        /**
+         * Adds a read replica queries are routed to once the connection is opened with {@link #openConnection(int)}
+         *
+         * @param connectionString jdbc url of the replica including its credentials
+         */
+        public void addReplica(String connectionString) {
+            replicaConnectionStrings.add(connectionString);
+        }
+
+        /**
+         * Configures how queries are spread over the replicas added with {@link #addReplica(String)},
+         * has to be called before the connection is opened. Defaults to round-robin with a read-your-writes window of 2 seconds.
+         *
+         * @param strategy       how a replica is picked for a query
+         * @param readYourWrites time queries of a thread stay on the primary after it wrote, 0 disables stickiness
+         * @param unit           unit of the read-your-writes window
+         */
+        public void setReadRouting(RoutingDataSource.Strategy strategy, long readYourWrites, TimeUnit unit) {
+            this.readStrategy = strategy;
+            this.readYourWritesMillis = unit.toMillis(readYourWrites);
+        }
+
+        /**
+         * Hook for vendors that need additional pool settings
+         *
+         * @param builder the builder of the pool that is about to be opened
+         * @return the given builder
+         */
+        protected ConnectionPool.Builder configurePool(ConnectionPool.Builder builder) {
+            return builder;
+        }
+
+        /**
+         * @return true if the pool is open and the circuit breaker does not currently reject calls
+         */
+        public boolean isConneted() {
+            return pool != null && !pool.isClosed() && circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+        }
+
+        /**
+         * Borrows a connection and validates it with {@link Connection#isValid(int)}, the result is reported to the circuit breaker
+         *
+         * @param timeoutSeconds time the database has to answer
+         * @return true if the database answered in time
+         */
+        public boolean checkHealth(int timeoutSeconds) {
+            try (Connection connection = borrow()) {
+                if (connection.isValid(timeoutSeconds))
+                    return true;
+                circuitBreaker.recordFailure(new SQLNonTransientConnectionException("The connection did not answer within " + timeoutSeconds + "s", "08006"));
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                LOGGER.log(levelOf(e, Level.WARNING), "The health check of the database failed\n{0}", e.getMessage());
+            }
+            return false;
+        }
+
+        /**
+         * Replaces the default circuit breaker, which opens after 3 connection failures and probes after 1 second doubling up to 1 minute
+         */
+        public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        /**
+         * Kept for code written against the single connection this class used to hold. The connection is borrowed from the
+         * pool once and shared by every caller until it is closed, so it permanently takes one connection of the pool.
+         * The other methods of this class borrow a connection per statement and should be preferred.
+         *
+         * @return a shared connection to the primary or null if none could be borrowed
+         */
+        @Deprecated
+        public synchronized Connection getConnection() {
             try {
-                this.connection = DriverManager.getConnection(connectionString);
+                if (connection == null || connection.isClosed())
+                    connection = borrowShared();
+                return connection;
             } catch (SQLException e) {
-                LOGGER.log(Level.SEVERE, "There was an error trying to connect to the database using following connection string\n{0}\n{1}", new Object[] {connectionString, e.getMessage()});
+                LOGGER.log(levelOf(e, Level.SEVERE), "There was an error trying to connect to the database using following connection string\n{0}\n{1}", new Object[] {connectionString, e.getMessage()});
             }
+            return null;
         }
 
-        public boolean isConneted() {
-            return connection != null;
+        /**
+         * Borrows the connection {@link #getConnection()} shares with its callers until it is closed
+         */
+        protected Connection borrowShared() throws SQLException {
+            return borrow();
         }
 
-        public void addTable(String tableName, boolean checkIfExists, String ... columns) {
-            String sql = "";
+        /**
+         * Borrows a pooled connection to the primary through the circuit breaker, failing fast while the database is unreachable.
+         * Dead connections are replaced by the pool, so the first successful probe reconnects automatically.
+         */
+        protected Connection borrow() throws SQLException {
+            if (pool == null)
+                throw new SQLNonTransientConnectionException("The connection has not been opened yet", "08003");
+            CircuitBreaker breaker = this.circuitBreaker;
+            breaker.acquire();
             try {
-                sql = String.format("CREATE TABLE %s " + ((checkIfExists) ? "IF NOT EXISTS" : "") + "(%s)", tableName, String.join(", ", columns));
-                this.connection.createStatement().execute(sql);
+                Connection connection = routing != null ? routing.getConnection() : pool.getConnection();
+                // ends a probe, while the breaker is closed the statements report their outcome themselves
+                if (breaker.getState() != CircuitBreaker.State.CLOSED)
+                    breaker.recordSuccess();
+                return connection;
             } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "There was an error trying to create the table {0}. Following sql statement was not successfull executed:\n{1}\n{2}", new Object[] {tableName, sql, e.getMessage()});
+                breaker.recordFailure(e);
+                throw e;
+            } catch (RuntimeException e) {
+                breaker.recordError(e);
+                throw e;
             }
         }
 
-        public int update(String sql, Object ... params) {
-            PreparedStatement ps = null;
+        /**
+         * Like {@link #borrow()} but the connection is taken from a replica if replicas are configured,
+         * so it must only be used for reads
+         */
+        protected Connection borrowForRead() throws SQLException {
+            RoutingDataSource routing = this.routing;
+            if (routing == null || routing.getReplicas().isEmpty())
+                return borrow();
+            CircuitBreaker breaker = this.circuitBreaker;
+            breaker.acquire();
             try {
-                if(params != null) {
-                    ps = this.connection.prepareStatement(sql);
-                    int index = 1;
-                    for(Object param : params) {
-                        ps.setObject(++index, param);
+                Connection connection = routing.getReadConnection();
+                // ends a probe, while the breaker is closed the statements report their outcome themselves
+                if (breaker.getState() != CircuitBreaker.State.CLOSED)
+                    breaker.recordSuccess();
+                return connection;
+            } catch (SQLException e) {
+                breaker.recordFailure(e);
+                throw e;
+            } catch (RuntimeException e) {
+                breaker.recordError(e);
+                throw e;
+            }
+        }
+
+        /**
+         * @return the given level or {@link Level#FINE} for calls the circuit breaker rejected, so a database outage does not flood the log
+         */
+        protected Level levelOf(SQLException e, Level level) {
+            return e instanceof CircuitBreaker.OpenException ? Level.FINE : level;
+        }
+
+        public void addTable(String tableName, boolean checkIfExists, String ... columns) {
+            String sql = String.format("CREATE TABLE %s" + ((checkIfExists) ? " IF NOT EXISTS " : " ") + "(%s)", tableName, String.join(", ", columns));
+            try (Connection connection = borrow();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error trying to create the table {0}. Following sql statement was not successfull executed:\n{1}\n{2}", new Object[] {tableName, sql, e.getMessage()});
+            }
+        }
+
+        /**
+         * Creates the table of the schema if it does not exist and adds its missing indexes
+         *
+         * @return true if the live schema matches the given one afterwards
+         */
+        public boolean addTable(TableSchema schema) {
+            return ensureSchema(schema) != null;
+        }
+
+        /**
+         * Creates every missing table and index of the given schemas, see {@link TableSchema#ensure(Connection, SqlDialect)}
+         *
+         * @return the executed ddl statements or null if one failed
+         */
+        public List<String> ensureSchema(TableSchema ... schemas) {
+            List<String> executed = new ArrayList<>();
+            try (Connection connection = borrow()) {
+                for (TableSchema schema : schemas) {
+                    for (String sql : schema.ensure(connection, getDialect())) {
+                        LOGGER.log(Level.INFO, "Updated the schema of {0}:\n{1}", new Object[] {schema.getName(), sql});
+                        executed.add(sql);
                     }
-                    return ps.executeUpdate();
-                } else {
-                    return this.connection.createStatement().executeUpdate(sql);
                 }
+                return executed;
             } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "There was an error executing an sql execution.\n{0}", e.getMessage());
-            } finally {
-                try {
-                    if (ps != null) {
-                        ps.close();
+                circuitBreaker.recordFailure(e);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error updating the database schema.\n{0}", e.getMessage());
+            }
+            return null;
+        }
+
+        /**
+         * @return the sql dialect of the database, derived from the connection string
+         */
+        public SqlDialect getDialect() {
+            return SqlDialect.fromUrl(connectionString);
+        }
+
+        public int update(String sql, Object ... params) {
+            long start = System.nanoTime();
+            try (Connection connection = borrow()) {
+                int result;
+                if (params != null) {
+                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                        int index = 0;
+                        for (Object param : params) {
+                            ps.setObject(++index, param);
+                        }
+                        result = ps.executeUpdate();
+                    }
+                } else {
+                    try (Statement statement = connection.createStatement()) {
+                        result = statement.executeUpdate(sql);
                     }
-                } catch (SQLException e) {
-                    LOGGER.log(Level.WARNING, "There was an error trying to close the query statement\n{0}", e.getMessage());
                 }
+                invalidateCache(sql);
+                record(sql, start, result, false);
+                return result;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                record(sql, start, 0, true);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error executing an sql execution.\n{0}", e.getMessage());
             }
             return 0;
         }
 
+        /**
+         * Inserts the row or updates the existing row with the same key using the native upsert of the vendor
+         *
+         * @param table      the table the row is written to
+         * @param row        the values of every written column by column name, in a stable order like a {@link java.util.LinkedHashMap}
+         * @param keyColumns the columns of the primary key or a unique index identifying the row
+         * @return the count of manipulations as reported by the driver
+         */
+        public int upsert(String table, Map<String, Object> row, String ... keyColumns) {
+            List<String> columns = new ArrayList<>(row.keySet());
+            return update(getDialect().upsert(table, columns, Arrays.asList(keyColumns)), row.values().toArray());
+        }
+
+        /**
+         * Runs a query limited to one page using offset paging
+         *
+         * @param sql    the query, it should have an ORDER BY clause to get stable pages
+         * @param limit  maximum count of returned rows
+         * @param offset count of skipped rows
+         * @see #query(String, Object...)
+         */
+        public ResultSet queryPage(String sql, long limit, long offset, Object ... params) {
+            return query(getDialect().limit(sql, limit, offset), params);
+        }
+
+        /**
+         * Runs a query limited to the rows following the given key, see {@link SqlDialect#keysetPage(String, List, boolean, long)}
+         *
+         * @param select     the query without ORDER BY, the key columns have to be part of its result
+         * @param keyColumns columns that order the rows and are unique together, e.g. the primary key
+         * @param lastKey    the values of the key columns of the last row of the previous page, null for the first page
+         * @param limit      maximum count of returned rows
+         * @see #query(String, Object...)
+         */
+        public ResultSet queryPageAfter(String select, List<String> keyColumns, Object[] lastKey, long limit, Object ... params) {
+            SqlDialect dialect = getDialect();
+            String sql = dialect.keysetPage(select, keyColumns, lastKey != null, limit);
+            if (lastKey == null)
+                return query(sql, params);
+            Object[] keyParams = dialect.keysetParameters(lastKey);
+            Object[] allParams = Arrays.copyOf(params == null ? new Object[0] : params, (params == null ? 0 : params.length) + keyParams.length);
+            System.arraycopy(keyParams, 0, allParams, allParams.length - keyParams.length, keyParams.length);
+            return query(sql, allParams);
+        }
+
+        /**
+         * Runs a query and returns a cursor over its rows that holds a pooled connection until it is closed
+         *
+         * @param fetchSize count of rows the driver fetches per round-trip, 0 uses the driver default
+         * @return an open {@link RowCursor} or null if the query failed
+         */
+        public RowCursor cursor(String sql, int fetchSize, Object ... params) {
+            try {
+                return RowCursor.open(borrowForRead(), sql, fetchSize, params);
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error executing an sql query.\n{0}", e.getMessage());
+            }
+            return null;
+        }
+
+        /**
+         * Runs a query and maps every row onto an instance of the given class, see {@link BeanRowMapper}
+         *
+         * @return a {@link List} containing a mapped instance for every row or null if the query failed
+         */
+        public <T> List<T> queryAs(String sql, Class<T> type, Object ... params) {
+            long start = System.nanoTime();
+            List<T> result = new ArrayList<>();
+            try (RowCursor cursor = RowCursor.open(borrowForRead(), sql, 0, params)) {
+                BeanRowMapper<T> mapper = BeanRowMapper.of(type);
+                while (cursor.next()) {
+                    result.add(mapper.map(cursor));
+                }
+                record(sql, start, result.size(), false);
+                return result;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                record(sql, start, result.size(), true);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error executing an sql query.\n{0}", e.getMessage());
+            }
+            return null;
+        }
+
+        /**
+         * Executes the sql statement once for every parameter set using a jdbc batch inside one transaction
+         *
+         * @return the update count of every row or an empty array if the batch failed and was rolled back
+         */
+        public int[] updateBatch(String sql, List<Object[]> rows) {
+            try {
+                return executeBatch(sql, rows, 1000);
+            } catch (SQLException e) {
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error executing an sql batch.\n{0}", e.getMessage());
+            }
+            return new int[0];
+        }
+
+        /**
+         * The write path of {@link #updateBatch(String, List)} and {@link #batchWriter(String, int, long, TimeUnit)},
+         * it goes through the circuit breaker, invalidates the query cache and records metrics like {@link #update(String, Object...)}
+         */
+        private int[] executeBatch(String sql, List<Object[]> rows, int chunkSize) throws SQLException {
+            long start = System.nanoTime();
+            try (Connection connection = borrow()) {
+                int[] result = BatchWriter.executeBatch(connection, sql, rows, chunkSize);
+                invalidateCache(sql);
+                record(sql, start, rows.size(), false);
+                return result;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                record(sql, start, 0, true);
+                throw e;
+            }
+        }
+
+        /**
+         * Runs the given work inside one transaction with the default isolation level of the database
+         *
+         * @see #inTransaction(int, Transaction.Work)
+         */
+        public <T> T inTransaction(Transaction.Work<T> work) {
+            return inTransaction(Transaction.DEFAULT_ISOLATION, work);
+        }
+
+        /**
+         * Runs the given work inside one transaction, it is committed once the work returns and rolled back if it throws.
+         * Deadlocks and serialization failures are retried up to 3 times.
+         *
+         * @param isolation one of the {@link Connection} TRANSACTION constants or {@link Transaction#DEFAULT_ISOLATION}
+         * @param work      the statements to run
+         * @return the result of the work or null if the transaction failed and was rolled back
+         */
+        public <T> T inTransaction(int isolation, Transaction.Work<T> work) {
+            long start = System.nanoTime();
+            try {
+                T result = Transaction.run(this::borrow, isolation, 3, work, executed -> executed.forEach(this::invalidateCache));
+                record("<transaction>", start, 0, false);
+                return result;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                record("<transaction>", start, 0, true);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error executing a transaction, it was rolled back.\n{0}", e.getMessage());
+            }
+            return null;
+        }
+
+        /**
+         * Loads the rows into the table using the fastest path of the vendor, see {@link BulkLoader}
+         *
+         * @param table   the table the rows are inserted into
+         * @param columns the columns in the order of the values of every row
+         * @param rows    the rows, they are pulled from the iterator while they are sent
+         * @return count of loaded rows or -1 if loading failed, in that case no row was loaded
+         */
+        public long bulkLoad(String table, List<String> columns, Iterator<Object[]> rows) {
+            long start = System.nanoTime();
+            String sql = "<bulk load> " + table;
+            try (Connection connection = borrow()) {
+                long loaded = bulkLoadStrategy().load(connection, table, columns, rows);
+                QueryCache<CachedRowSet> cache = this.queryCache;
+                if (cache != null)
+                    cache.invalidateTable(table);
+                record(sql, start, loaded, false);
+                return loaded;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                record(sql, start, 0, true);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error bulk loading rows into the table {0}.\n{1}", new Object[] {table, e.getMessage()});
+            }
+            return -1;
+        }
+
+        /**
+         * Hook for vendors that offer a faster way to load many rows than multi row inserts
+         *
+         * @return the strategy {@link #bulkLoad(String, List, Iterator)} uses
+         */
+        protected BulkLoader.Strategy bulkLoadStrategy() {
+            return BulkLoader.multiRowInsert(500);
+        }
+
+        /**
+         * @return a {@link BatchWriter} for the given sql statement whose batches are written like {@link #updateBatch(String, List)}
+         */
+        public BatchWriter batchWriter(String sql, int batchSize, long flushInterval, TimeUnit unit) {
+            return new BatchWriter(this::executeBatch, sql, batchSize, flushInterval, unit);
+        }
+
+        /**
+         * Runs a query and copies its result into a disconnected {@link CachedRowSet},
+         * so the pooled connection is handed back before this method returns.
+         * With a query cache every caller gets its own copy of the cached rows.
+         */
         public ResultSet query(String sql, Object ... params) {
-            PreparedStatement ps = null;
+            QueryCache<CachedRowSet> cache = this.queryCache;
+            if (cache == null)
+                return load(sql, params);
+            CachedRowSet cached = cache.get(sql, params, () -> load(sql, params));
             try {
+                return cached == null ? null : cached.createCopy();
+            } catch (SQLException e) {
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error copying a cached query result.\n{0}", e.getMessage());
+            }
+            return null;
+        }
+
+        private CachedRowSet load(String sql, Object ... params) {
+            long start = System.nanoTime();
+            try (Connection connection = borrowForRead()) {
+                CachedRowSet result;
                 if (params != null) {
-                    ps = this.connection.prepareStatement(sql);
-                    int index = 1;
-                    for (Object param : params) {
-                        ps.setObject(++index, param);
+                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                        int index = 0;
+                        for (Object param : params) {
+                            ps.setObject(++index, param);
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            result = disconnect(rs);
+                        }
                     }
-                    return ps.executeQuery();
                 } else {
-                    return this.connection.createStatement().executeQuery(sql);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "There was an error executing an sql query.\n{0}", e.getMessage());
-            } /*finally {
-                try {
-                    if (ps != null) {
-                        ps.close();
+                    try (Statement statement = connection.createStatement();
+                         ResultSet rs = statement.executeQuery(sql)) {
+                        result = disconnect(rs);
                     }
-                } catch (SQLException e) {
-                    LOGGER.log(Level.WARNING, "There was an error trying to close the query statement\n{0}", e.getMessage());
                 }
-            }*/
+                record(sql, start, result.size(), false);
+                return result;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure(e);
+                record(sql, start, 0, true);
+                LOGGER.log(levelOf(e, Level.WARNING), "There was an error executing an sql query.\n{0}", e.getMessage());
+            }
             return null;
         }
 
+        /**
+         * @param queryCache cache for {@link #query(String, Object...)} results or null to disable caching,
+         *                   updates run through this connectable invalidate the cached results of the tables they touch
+         */
+        public void setQueryCache(QueryCache<CachedRowSet> queryCache) {
+            this.queryCache = queryCache;
+        }
+
+        public QueryCache<CachedRowSet> getQueryCache() {
+            return queryCache;
+        }
+
+        /**
+         * @param metrics metrics every statement run through this connectable is recorded to or null to disable recording
+         */
+        public void setMetrics(DatabaseMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        public DatabaseMetrics getMetrics() {
+            return metrics;
+        }
+
+        private void record(String sql, long start, long rows, boolean failed) {
+            if (!failed)
+                circuitBreaker.recordSuccess();
+            DatabaseMetrics metrics = this.metrics;
+            if (metrics != null)
+                metrics.record(sql, start, rows, failed);
+        }
+
+        private void invalidateCache(String sql) {
+            QueryCache<CachedRowSet> cache = this.queryCache;
+            if (cache != null)
+                cache.invalidate(sql);
+        }
+
+        /**
+         * Runs {@link #update(String, Object...)} on the executor of this connectable
+         */
+        public CompletableFuture<Integer> updateAsync(String sql, Object ... params) {
+            return getExecutor().submit(() -> update(sql, params));
+        }
+
+        /**
+         * Runs {@link #query(String, Object...)} on the executor of this connectable
+         */
+        public CompletableFuture<ResultSet> queryAsync(String sql, Object ... params) {
+            return getExecutor().submit(() -> query(sql, params));
+        }
+
+        /**
+         * @return the executor the async methods run on, a default one sized after the pool is created on first use
+         */
+        public synchronized DatabaseExecutor getExecutor() {
+            if (executor == null)
+                executor = new DatabaseExecutor(pool != null ? pool.getMaxSize() : 4, 1024);
+            return executor;
+        }
+
+        /**
+         * @param executor the executor the async methods run on, e.g. one that hands results back to the main thread
+         */
+        public synchronized void setExecutor(DatabaseExecutor executor) {
+            this.executor = executor;
+        }
+
+        protected CachedRowSet disconnect(ResultSet rs) throws SQLException {
+            CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+            rowSet.populate(rs);
+            return rowSet;
+        }
+
         public void closeConnection() {
-            try {
-                this.connection.close();
-            } catch (SQLException e) {
-                LOGGER.log(Level.SEVERE, "There was an error trying to close the database connection\n{0}", e.getMessage());
+            synchronized (this) {
+                // a later openConnection() creates a fresh executor instead of submitting to the closed one
+                if (executor != null) {
+                    executor.close();
+                    executor = null;
+                }
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        LOGGER.log(Level.SEVERE, "There was an error trying to close the database connection\n{0}", e.getMessage());
+                    }
+                    connection = null;
+                }
             }
+            if (routing != null)
+                routing.close();
+            else if (pool != null)
+                pool.close();
         }
 
     }
@@ -0,0 +1,205 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serializes every write to a SQLite database on one thread and commits the writes that queued up meanwhile together.
+ * <br>
+ * How to use:
+ * <pre>
+ *   SQLiteWriteQueue writes = new SQLiteWriteQueue(pool::getConnection, 256, 4096);
+ *
+ *   writes.execute("UPDATE players SET coins=? WHERE id=?", 10, 1)
+ *           .thenAccept(manipulations -> player.sendMessage("Saved!"));
+ *
+ *   writes.close(); // runs the queued writes before it returns
+ * </pre>
+ * <br>
+ * SQLite allows only one writer at a time, concurrent writers wait on the database lock and fail with
+ * {@code SQLITE_BUSY} once the busy timeout elapsed. This queue never lets two writes compete for the lock and pays
+ * one commit for a whole group of writes instead of one per write. Every write runs inside its own savepoint, so a
+ * failing write is undone and completes its future exceptionally without affecting the others of its group.
+ * The futures are completed after the group was committed.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class SQLiteWriteQueue implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("SQLiteWriteQueue");
+    private static final AtomicInteger QUEUE_COUNTER = new AtomicInteger();
+
+    private final Transaction.ConnectionSource source;
+    private final int maxGroupSize;
+    private final BlockingQueue<Write<?>> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * @param source        supplies the connection every group of writes runs on, it is closed after the group was committed
+     * @param maxGroupSize  maximum count of writes committed together
+     * @param queueCapacity maximum count of writes waiting, further writes block the caller until there is room
+     */
+    public SQLiteWriteQueue(Transaction.ConnectionSource source, int maxGroupSize, int queueCapacity) {
+        this.source = source;
+        this.maxGroupSize = maxGroupSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::run, "SQLiteWriteQueue-" + QUEUE_COUNTER.incrementAndGet());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a sql statement
+     *
+     * @param sql        the sql statement to execute
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return a {@link CompletableFuture} completed with the count of manipulations after the write was committed
+     */
+    public CompletableFuture<Integer> execute(String sql, Object... parameters) {
+        return submit(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; parameters != null && i < parameters.length; i++) {
+                    ps.setObject(i + 1, parameters[i]);
+                }
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Queues arbitrary work on the write connection, it must not commit, roll back or close the connection
+     *
+     * @return a {@link CompletableFuture} completed with the result of the work after it was committed
+     */
+    public <T> CompletableFuture<T> submit(Task<T> task) {
+        Write<T> write = new Write<>(task);
+        if (closed) {
+            write.result.completeExceptionally(new RejectedExecutionException("The write queue has been closed"));
+            return write.result;
+        }
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.result.completeExceptionally(e);
+            return write.result;
+        }
+        // the queue was closed while this write was put, close() drains the queue only once, so it may never see it
+        if (closed && queue.remove(write))
+            write.result.completeExceptionally(new RejectedExecutionException("The write queue has been closed"));
+        return write.result;
+    }
+
+    /**
+     * @return count of writes waiting to be run
+     */
+    public int getQueuedWrites() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Write<?>> group = new ArrayList<>(maxGroupSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Write<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                runGroup(group);
+            } catch (InterruptedException e) {
+                closed = true;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void runGroup(List<Write<?>> group) {
+        try (Connection connection = source.get()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (Write<?> write : group) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        write.run(connection);
+                        connection.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        connection.rollback(savepoint);
+                        write.failure = e;
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "There was an error committing {0} queued writes, they were rolled back.\n{1}", new Object[]{group.size(), e.getMessage()});
+            for (Write<?> write : group) {
+                write.result.completeExceptionally(e);
+            }
+            return;
+        }
+        for (Write<?> write : group) {
+            write.complete();
+        }
+    }
+
+    /**
+     * Stops accepting writes and waits until the queued ones were committed
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Write<?> write;
+        while ((write = queue.poll()) != null) {
+            write.result.completeExceptionally(new RejectedExecutionException("The write queue has been closed"));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private static class Write<T> {
+
+        private final Task<T> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Exception failure;
+
+        private Write(Task<T> task) {
+            this.task = task;
+        }
+
+        private void run(Connection connection) throws SQLException {
+            value = task.run(connection);
+        }
+
+        private void complete() {
+            if (failure != null)
+                result.completeExceptionally(failure);
+            else
+                result.complete(value);
+        }
+    }
+
+}
@@ -0,0 +1,382 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The sql differences between the databases supported by {@code VariousSQLDatabase}.
+ * <br>
+ * How to use:
+ * <pre>
+ *   SqlDialect dialect = SqlDialect.fromUrl(pool.getUrl());
+ *   for (String ddl : dialect.createTable(schema)) {
+ *       statement.execute(ddl);
+ *   }
+ *
+ *   String upsert = dialect.upsert("player_stats", Arrays.asList("id", "kills", "deaths"), Collections.singletonList("id"));
+ *   String firstPage = dialect.keysetPage("SELECT id, name FROM players", Collections.singletonList("id"), false, 50);
+ *   String nextPage = dialect.keysetPage("SELECT id, name FROM players", Collections.singletonList("id"), true, 50);
+ * </pre>
+ * <br>
+ * Identifiers are written as given and never quoted, the same way {@code addTable} and every other statement of these
+ * classes use them, so they keep the case folding rules of the database.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public enum SqlDialect {
+
+    MYSQL, MARIADB, POSTGRESQL, SQLITE, MSSQL, ORACLE, H2, GENERIC;
+
+    private static final Pattern ORDER_BY = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CLAUSE = Pattern.compile("\\b(where|group\\s+by|having|window)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SET_OPERATION = Pattern.compile("\\b(union|intersect|except|minus)\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * @param url a jdbc url
+     * @return the dialect of the database the url points to, {@link #GENERIC} for unknown databases
+     */
+    public static SqlDialect fromUrl(String url) {
+        if (url == null)
+            return GENERIC;
+        String lower = url.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("jdbc:mysql:"))
+            return MYSQL;
+        if (lower.startsWith("jdbc:mariadb:"))
+            return MARIADB;
+        if (lower.startsWith("jdbc:postgresql:"))
+            return POSTGRESQL;
+        if (lower.startsWith("jdbc:sqlite:"))
+            return SQLITE;
+        if (lower.startsWith("jdbc:sqlserver:"))
+            return MSSQL;
+        if (lower.startsWith("jdbc:oracle:"))
+            return ORACLE;
+        if (lower.startsWith("jdbc:h2:"))
+            return H2;
+        return GENERIC;
+    }
+
+    /**
+     * @return the column type of this dialect for the given portable type
+     */
+    public String typeName(TableSchema.Type type) {
+        switch (type.getKind()) {
+            case INT:
+                return this == ORACLE ? "NUMBER(10)" : this == SQLITE ? "INTEGER" : "INT";
+            case BIGINT:
+                return this == ORACLE ? "NUMBER(19)" : this == SQLITE ? "INTEGER" : "BIGINT";
+            case DOUBLE:
+                switch (this) {
+                    case POSTGRESQL: return "DOUBLE PRECISION";
+                    case SQLITE: return "REAL";
+                    case MSSQL: return "FLOAT";
+                    case ORACLE: return "BINARY_DOUBLE";
+                    default: return "DOUBLE";
+                }
+            case BOOLEAN:
+                switch (this) {
+                    case SQLITE: return "INTEGER";
+                    case MSSQL: return "BIT";
+                    case ORACLE: return "NUMBER(1)";
+                    default: return "BOOLEAN";
+                }
+            case DECIMAL:
+                return String.format(this == ORACLE ? "NUMBER(%d, %d)" : "DECIMAL(%d, %d)", type.getLength(), type.getScale());
+            case VARCHAR:
+                return String.format(this == ORACLE ? "VARCHAR2(%d)" : this == MSSQL ? "NVARCHAR(%d)" : "VARCHAR(%d)", type.getLength());
+            case TEXT:
+                return this == MSSQL ? "NVARCHAR(MAX)" : this == ORACLE ? "CLOB" : "TEXT";
+            case TIMESTAMP:
+                return this == MYSQL || this == MARIADB ? "DATETIME(3)" : this == MSSQL ? "DATETIME2" : "TIMESTAMP";
+            case BLOB:
+                switch (this) {
+                    case MYSQL:
+                    case MARIADB: return "LONGBLOB";
+                    case POSTGRESQL: return "BYTEA";
+                    case MSSQL: return "VARBINARY(MAX)";
+                    default: return "BLOB";
+                }
+            default:
+                throw new IllegalArgumentException("Unknown column type " + type.getKind());
+        }
+    }
+
+    /**
+     * @return the statements creating the table and every index of the schema
+     */
+    public List<String> createTable(TableSchema schema) {
+        List<String> statements = new ArrayList<>();
+        List<String> primaryKey = schema.getPrimaryKey();
+        boolean inlinePrimaryKey = false;
+        List<String> definitions = new ArrayList<>();
+        for (TableSchema.Column column : schema.getColumns()) {
+            StringBuilder definition = new StringBuilder(column.getName()).append(' ');
+            if (column.isAutoIncrement() && this == SQLITE && primaryKey.size() == 1 && primaryKey.get(0).equals(column.getName())) {
+                // only an INTEGER PRIMARY KEY column becomes an alias of the rowid and is assigned automatically
+                definition.append("INTEGER PRIMARY KEY");
+                inlinePrimaryKey = true;
+            } else {
+                definition.append(column.isAutoIncrement() && this == POSTGRESQL
+                        ? (column.getType().getKind() == TableSchema.Type.Kind.BIGINT ? "BIGSERIAL" : "SERIAL")
+                        : typeName(column.getType()));
+                if (column.isAutoIncrement())
+                    definition.append(autoIncrement());
+                if (column.getDefaultValue() != null)
+                    definition.append(" DEFAULT ").append(column.getDefaultValue());
+                if (!column.isNullable())
+                    definition.append(" NOT NULL");
+            }
+            definitions.add(definition.toString());
+        }
+        if (!primaryKey.isEmpty() && !inlinePrimaryKey)
+            definitions.add("PRIMARY KEY (" + String.join(", ", primaryKey) + ")");
+        statements.add(String.format("CREATE TABLE %s (%s)", schema.getName(), String.join(", ", definitions)));
+        for (TableSchema.Index index : schema.getIndexes()) {
+            statements.add(createIndex(schema.getName(), index));
+        }
+        return statements;
+    }
+
+    private String autoIncrement() {
+        switch (this) {
+            case MYSQL:
+            case MARIADB: return " AUTO_INCREMENT";
+            case MSSQL: return " IDENTITY(1,1)";
+            case ORACLE:
+            case H2:
+            case GENERIC: return " GENERATED BY DEFAULT AS IDENTITY";
+            default: return "";
+        }
+    }
+
+    /**
+     * @return the statement creating the given index on the table
+     */
+    public String createIndex(String table, TableSchema.Index index) {
+        return String.format("CREATE %sINDEX %s ON %s (%s)", index.isUnique() ? "UNIQUE " : "", index.getName(), table, String.join(", ", index.getColumns()));
+    }
+
+    /**
+     * Limits a query to one page using offset paging, the database still reads every skipped row,
+     * so prefer {@link #keysetPage(String, List, boolean, long)} for deep pages
+     *
+     * @param sql    the query, it should have an ORDER BY clause to get stable pages
+     * @param limit  maximum count of returned rows
+     * @param offset count of skipped rows
+     * @return the query limited to the page
+     */
+    public String limit(String sql, long limit, long offset) {
+        switch (this) {
+            case MSSQL:
+            case ORACLE:
+            case GENERIC:
+                // OFFSET ... FETCH is only allowed after an ORDER BY in sql server
+                String ordered = this == MSSQL && !ORDER_BY.matcher(sql).find() ? sql + " ORDER BY (SELECT NULL)" : sql;
+                return String.format("%s OFFSET %d ROWS FETCH NEXT %d ROWS ONLY", ordered, offset, limit);
+            default:
+                return offset > 0 ? String.format("%s LIMIT %d OFFSET %d", sql, limit, offset) : String.format("%s LIMIT %d", sql, limit);
+        }
+    }
+
+    /**
+     * Limits a query to the rows following the last row of the previous page in the order of the key columns.
+     * With an index on the key columns every page costs the same no matter how deep it is.
+     * The key predicate is added to the WHERE clause of the query, so the database can use the index instead of
+     * materializing the whole result first, only compound queries like UNION are wrapped into a derived table.
+     * The parameters of the query are followed by {@link #keysetParameters(Object[])} of the last key, so if the HAVING
+     * clause has parameters the predicate is added to it instead. Other parameters after the WHERE clause are not supported.
+     *
+     * @param select     the query without ORDER BY, the key columns have to be part of its result and be referenced
+     *                   by the names of their tables, not by aliases of the select list
+     * @param keyColumns columns that order the rows and are unique together, e.g. the primary key
+     * @param after      false for the first page, true for every following page
+     * @param limit      maximum count of returned rows
+     * @return the query of the page
+     */
+    public String keysetPage(String select, List<String> keyColumns, boolean after, long limit) {
+        String sql = after ? restrict(select.trim(), keysetPredicate(keyColumns)) : select;
+        return limit(sql + " ORDER BY " + String.join(", ", keyColumns), limit, 0);
+    }
+
+    private String keysetPredicate(List<String> keyColumns) {
+        StringBuilder predicate = new StringBuilder();
+        if (supportsRowValues()) {
+            predicate.append('(').append(String.join(", ", keyColumns)).append(") > (");
+            for (int i = 0; i < keyColumns.size(); i++) {
+                predicate.append(i == 0 ? "?" : ", ?");
+            }
+            predicate.append(')');
+        } else {
+            // (a, b) > (?, ?) expanded to a > ? OR (a = ? AND b > ?), enclosed so it stays one condition next to an AND
+            boolean enclosed = keyColumns.size() > 1;
+            if (enclosed)
+                predicate.append('(');
+            for (int i = 0; i < keyColumns.size(); i++) {
+                if (i > 0)
+                    predicate.append(" OR ");
+                predicate.append('(');
+                for (int j = 0; j < i; j++) {
+                    predicate.append(keyColumns.get(j)).append(" = ? AND ");
+                }
+                predicate.append(keyColumns.get(i)).append(" > ?)");
+            }
+            if (enclosed)
+                predicate.append(')');
+        }
+        return predicate.toString();
+    }
+
+    /**
+     * Adds the predicate to the WHERE clause of the query, creating it if there is none. Only if the HAVING clause has
+     * parameters the predicate is added to it instead, so the key parameters still follow every parameter of the query.
+     */
+    private static String restrict(String select, String predicate) {
+        String masked = maskNested(select);
+        if (SET_OPERATION.matcher(masked).find())
+            return "SELECT * FROM (" + select + ") page WHERE " + predicate;
+        int whereStart = -1, whereEnd = -1, havingStart = -1, havingEnd = -1, insertAt = -1;
+        Matcher clause = CLAUSE.matcher(masked);
+        while (clause.find()) {
+            // a clause body ends where the next clause starts
+            if (whereStart >= 0 && whereEnd < 0)
+                whereEnd = clause.start();
+            if (havingStart >= 0 && havingEnd < 0)
+                havingEnd = clause.start();
+            String keyword = clause.group(1).toLowerCase(Locale.ROOT);
+            if (keyword.equals("where"))
+                whereStart = clause.end();
+            else if (keyword.equals("having"))
+                havingStart = clause.end();
+            if (insertAt < 0)
+                insertAt = clause.start();
+        }
+        if (whereStart >= 0 && whereEnd < 0)
+            whereEnd = select.length();
+        if (havingStart >= 0 && havingEnd < 0)
+            havingEnd = select.length();
+        boolean inHaving = havingStart >= 0 && select.substring(havingStart, havingEnd).indexOf('?') >= 0;
+        int start = inHaving ? havingStart : whereStart;
+        if (start < 0) {
+            if (insertAt < 0)
+                insertAt = select.length();
+            String rest = select.substring(insertAt);
+            return select.substring(0, insertAt).trim() + " WHERE " + predicate + (rest.isEmpty() ? "" : " " + rest);
+        }
+        int end = inHaving ? havingEnd : whereEnd;
+        String rest = select.substring(end);
+        // the existing condition is put into parentheses, so an OR in it does not swallow the predicate
+        return select.substring(0, start) + " (" + select.substring(start, end).trim() + ") AND " + predicate + (rest.isEmpty() ? "" : " " + rest);
+    }
+
+    /**
+     * @return the sql with every literal, quoted identifier and parenthesized part replaced by spaces,
+     * so keywords found in it belong to the outermost query
+     */
+    private static String maskNested(String sql) {
+        char[] masked = sql.toCharArray();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < masked.length; i++) {
+            char c = masked[i];
+            if (quote != 0) {
+                if (c == quote)
+                    quote = 0;
+                masked[i] = ' ';
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                masked[i] = ' ';
+            } else if (c == '(') {
+                depth++;
+                masked[i] = ' ';
+            } else if (c == ')') {
+                depth--;
+                masked[i] = ' ';
+            } else if (depth > 0) {
+                masked[i] = ' ';
+            }
+        }
+        return new String(masked);
+    }
+
+    /**
+     * @param lastKey the values of the key columns of the last row of the previous page
+     * @return the parameters for the placeholders {@link #keysetPage(String, List, boolean, long)} added
+     */
+    public Object[] keysetParameters(Object[] lastKey) {
+        if (supportsRowValues())
+            return lastKey;
+        List<Object> parameters = new ArrayList<>();
+        for (int i = 0; i < lastKey.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                parameters.add(lastKey[j]);
+            }
+        }
+        return parameters.toArray();
+    }
+
+    private boolean supportsRowValues() {
+        // mysql and mariadb accept row values but do not use them for index range scans
+        return this == POSTGRESQL || this == SQLITE || this == H2;
+    }
+
+    /**
+     * Writes a statement inserting a row or updating the existing row with the same key in one round-trip.
+     * The parameters are the values of the columns in their order.
+     *
+     * @param table      the table the row is written to
+     * @param columns    every written column
+     * @param keyColumns the columns of the primary key or a unique index identifying the row
+     * @return the upsert statement of this dialect
+     */
+    public String upsert(String table, List<String> columns, List<String> keyColumns) {
+        List<String> updated = new ArrayList<>(columns);
+        updated.removeAll(keyColumns);
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String columnList = String.join(", ", columns);
+        String insert = String.format("INSERT INTO %s (%s) VALUES (%s)", table, columnList, placeholders);
+        switch (this) {
+            case MYSQL:
+            case MARIADB:
+                // VALUES(column) instead of the row alias, which needs MySQL 8.0.19 and does not exist in mariadb
+                return insert + " ON DUPLICATE KEY UPDATE " + (updated.isEmpty()
+                        ? keyColumns.get(0) + " = " + keyColumns.get(0)
+                        : join(updated, "%1$s = VALUES(%1$s)", ", "));
+            case POSTGRESQL:
+            case SQLITE:
+                return insert + " ON CONFLICT (" + String.join(", ", keyColumns) + ") " + (updated.isEmpty()
+                        ? "DO NOTHING"
+                        : "DO UPDATE SET " + join(updated, "%1$s = excluded.%1$s", ", "));
+            case H2:
+                return String.format("MERGE INTO %s (%s) KEY (%s) VALUES (%s)", table, columnList, String.join(", ", keyColumns), placeholders);
+            default:
+                StringBuilder merge = new StringBuilder("MERGE INTO ").append(table).append(" target USING (");
+                if (this == ORACLE)
+                    merge.append("SELECT ").append(join(columns, "? %s", ", ")).append(" FROM dual) source");
+                else
+                    merge.append("VALUES (").append(placeholders).append(")) source (").append(columnList).append(')');
+                merge.append(" ON (").append(join(keyColumns, "target.%1$s = source.%1$s", " AND ")).append(')');
+                if (!updated.isEmpty())
+                    merge.append(" WHEN MATCHED THEN UPDATE SET ").append(join(updated, "%1$s = source.%1$s", ", "));
+                merge.append(" WHEN NOT MATCHED THEN INSERT (").append(columnList).append(") VALUES (")
+                        .append(join(columns, "source.%s", ", ")).append(')');
+                // sql server requires every MERGE to be terminated
+                return this == MSSQL ? merge.append(';').toString() : merge.toString();
+        }
+    }
+
+    private static String join(List<String> columns, String format, String delimiter) {
+        StringBuilder result = new StringBuilder();
+        for (String column : columns) {
+            if (result.length() > 0)
+                result.append(delimiter);
+            result.append(String.format(format, column));
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,212 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A least recently used cache of {@link PreparedStatement}s keyed by their sql text.
+ * <br>
+ * Each physical connection of a {@link ConnectionPool} owns one cache. Statements handed out by
+ * {@link #prepare(Connection, Connection, String)} are proxies, calling {@link PreparedStatement#close()} on them clears
+ * the parameters, restores the fetch size, max rows, query timeout and fetch direction and puts the statement back into
+ * the cache instead of closing it.
+ * When the physical connection is closed the pool calls {@link #closeAll()}.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class StatementCache {
+
+    private static final Logger LOGGER = Logger.getLogger("ConnectionPool");
+
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    /**
+     * @param capacity maximum count of statements kept open per connection
+     * @param hits     counter incremented for every statement served from the cache
+     * @param misses   counter incremented for every statement that had to be prepared
+     */
+    public StatementCache(int capacity, LongAdder hits, LongAdder misses) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity)
+                    return false;
+                eldest.getValue().evicted = true;
+                if (!eldest.getValue().inUse)
+                    closeQuietly(eldest.getValue().statement);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the given sql or prepares a new one.
+     * Should the cached statement still be in use an uncached statement is prepared instead.
+     *
+     * @param connection the physical connection this cache belongs to
+     * @param pooled     the pooled connection handed out to the caller, returned by {@link PreparedStatement#getConnection()}
+     * @param sql        the sql statement to prepare
+     * @return a {@link PreparedStatement} whose close method hands it back to the cache
+     */
+    public synchronized PreparedStatement prepare(Connection connection, Connection pooled, String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            hits.increment();
+        } else {
+            misses.increment();
+            if (cached != null)
+                return connection.prepareStatement(sql);
+            cached = new CachedStatement(connection.prepareStatement(sql));
+            statements.put(sql, cached);
+        }
+        cached.inUse = true;
+        return cached.lend(pooled);
+    }
+
+    /**
+     * @return count of statements currently held by this cache
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement, used when the owning connection is recycled
+     */
+    public synchronized void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evicted = true;
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    private synchronized void giveBack(CachedStatement cached) {
+        cached.inUse = false;
+        try {
+            if (cached.openResultSet != null && !cached.openResultSet.isClosed())
+                cached.openResultSet.close();
+            cached.openResultSet = null;
+            cached.statement.clearParameters();
+            cached.statement.clearBatch();
+            cached.statement.clearWarnings();
+            if (cached.settingsChanged) {
+                cached.statement.setFetchSize(cached.defaultFetchSize);
+                cached.statement.setMaxRows(cached.defaultMaxRows);
+                cached.statement.setQueryTimeout(cached.defaultQueryTimeout);
+                cached.statement.setFetchDirection(cached.defaultFetchDirection);
+                cached.settingsChanged = false;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "There was an error resetting a cached statement, it will be discarded\n{0}", e.getMessage());
+            cached.evicted = true;
+            statements.values().remove(cached);
+        }
+        if (cached.evicted)
+            closeQuietly(cached.statement);
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "There was an error closing a cached statement\n{0}", e.getMessage());
+        }
+    }
+
+    private class CachedStatement {
+
+        private final PreparedStatement statement;
+        private final int defaultFetchSize;
+        private final int defaultMaxRows;
+        private final int defaultQueryTimeout;
+        private final int defaultFetchDirection;
+        private ResultSet openResultSet;
+        private boolean inUse;
+        private boolean evicted;
+        private boolean settingsChanged;
+
+        private CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+            this.defaultMaxRows = statement.getMaxRows();
+            this.defaultQueryTimeout = statement.getQueryTimeout();
+            this.defaultFetchDirection = statement.getFetchDirection();
+        }
+
+        private PreparedStatement lend(Connection pooled) {
+            boolean[] returned = {false};
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned[0]) {
+                            returned[0] = true;
+                            giveBack(this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned[0] || statement.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached[" + statement + "]";
+                    // the physical statement and connection stay hidden, otherwise the caller could bypass the pool
+                    case "getConnection":
+                        checkLent(returned[0]);
+                        return pooled;
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(proxy))
+                            return proxy;
+                        throw new SQLException("The cached statement does not wrap " + ((Class<?>) args[0]).getName());
+                    case "isWrapperFor":
+                        return ((Class<?>) args[0]).isInstance(proxy);
+                    // restored to the values captured on prepare when the statement is handed back
+                    case "setFetchSize":
+                    case "setMaxRows":
+                    case "setQueryTimeout":
+                    case "setFetchDirection":
+                        checkLent(returned[0]);
+                        settingsChanged = true;
+                        return forward(method, args);
+                    default:
+                        checkLent(returned[0]);
+                        return forward(method, args);
+                }
+            });
+        }
+
+        private void checkLent(boolean returned) throws SQLException {
+            if (returned)
+                throw new SQLException("The statement has already been handed back to the statement cache");
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                Object result = method.invoke(statement, args);
+                if (result instanceof ResultSet)
+                    openResultSet = (ResultSet) result;
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+}
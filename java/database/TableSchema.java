@@ -0,0 +1,356 @@
+import java.sql.*;
+import java.util.*;
+
+/**
+ * A typed description of a table with its primary key and secondary indexes, written as ddl by a {@link SqlDialect}.
+ * <br>
+ * How to use:
+ * <pre>
+ *   TableSchema stats = TableSchema.builder("player_stats")
+ *           .column("id", TableSchema.Type.BIGINT, false)
+ *           .column("uuid", TableSchema.Type.varchar(36), false)
+ *           .column("name", TableSchema.Type.varchar(16))
+ *           .column("kills", TableSchema.Type.INT, false)
+ *           .defaultValue("kills", "0")
+ *           .autoIncrement("id")
+ *           .primaryKey("id")
+ *           .uniqueIndex("uq_player_stats_uuid", "uuid")
+ *           .index("idx_player_stats_name_kills", "name", "kills")
+ *           .build();
+ *
+ *   List&lt;String&gt; executed = stats.ensure(connection, SqlDialect.MYSQL);
+ * </pre>
+ * <br>
+ * {@link #ensure(Connection, SqlDialect)} reads the live schema through {@link DatabaseMetaData} and only creates what is
+ * missing: the table if it does not exist and otherwise every index for which neither an index with the same name nor an
+ * index over the same columns exists. It can therefore run on every start, existing columns are never altered.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class TableSchema {
+
+    private final String name;
+    private final List<Column> columns;
+    private final List<String> primaryKey;
+    private final List<Index> indexes;
+
+    private TableSchema(Builder builder) {
+        this.name = builder.name;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(builder.columns.values()));
+        this.primaryKey = Collections.unmodifiableList(new ArrayList<>(builder.primaryKey));
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(builder.indexes));
+    }
+
+    /**
+     * @param name name of the table
+     * @return a new {@link Builder} for a table with the given name
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<String> getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public List<Index> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Compares this schema with the live schema
+     *
+     * @param metaData meta data of the database to compare with
+     * @param dialect  the dialect the statements are written in
+     * @return the statements creating everything that is missing, empty if the live schema is up to date
+     */
+    public List<String> diff(DatabaseMetaData metaData, SqlDialect dialect) throws SQLException {
+        String catalog = metaData.getConnection().getCatalog();
+        String table = normalize(metaData, name);
+        try (ResultSet rs = metaData.getTables(catalog, null, table, new String[]{"TABLE"})) {
+            if (!rs.next())
+                return dialect.createTable(this);
+        }
+        Map<String, List<String>> existing = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(catalog, null, table, false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName == null || column == null)
+                    continue;
+                List<String> indexColumns = existing.computeIfAbsent(indexName.toLowerCase(Locale.ROOT), k -> new ArrayList<>());
+                int position = rs.getShort("ORDINAL_POSITION");
+                while (indexColumns.size() < position) {
+                    indexColumns.add(null);
+                }
+                indexColumns.set(Math.max(0, position - 1), column.toLowerCase(Locale.ROOT));
+            }
+        }
+        Set<List<String>> existingColumns = new HashSet<>(existing.values());
+        existingColumns.add(lowerCase(primaryKey));
+        List<String> statements = new ArrayList<>();
+        for (Index index : indexes) {
+            if (!existing.containsKey(index.getName().toLowerCase(Locale.ROOT)) && !existingColumns.contains(lowerCase(index.getColumns())))
+                statements.add(dialect.createIndex(name, index));
+        }
+        return statements;
+    }
+
+    /**
+     * Creates everything {@link #diff(DatabaseMetaData, SqlDialect)} reports as missing
+     *
+     * @param connection the connection to read the live schema with and to execute the statements on
+     * @param dialect    the dialect the statements are written in
+     * @return the executed statements
+     */
+    public List<String> ensure(Connection connection, SqlDialect dialect) throws SQLException {
+        List<String> statements = diff(connection.getMetaData(), dialect);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+        return statements;
+    }
+
+    private static String normalize(DatabaseMetaData metaData, String identifier) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers())
+            return identifier.toUpperCase(Locale.ROOT);
+        if (metaData.storesLowerCaseIdentifiers())
+            return identifier.toLowerCase(Locale.ROOT);
+        return identifier;
+    }
+
+    private static List<String> lowerCase(List<String> identifiers) {
+        List<String> lower = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            lower.add(identifier.toLowerCase(Locale.ROOT));
+        }
+        return lower;
+    }
+
+    /**
+     * A portable column type, mapped onto the type of a database by {@link SqlDialect#typeName(Type)}
+     */
+    public static class Type {
+
+        public enum Kind {
+            INT, BIGINT, DOUBLE, BOOLEAN, DECIMAL, VARCHAR, TEXT, TIMESTAMP, BLOB
+        }
+
+        public static final Type INT = new Type(Kind.INT, 0, 0);
+        public static final Type BIGINT = new Type(Kind.BIGINT, 0, 0);
+        public static final Type DOUBLE = new Type(Kind.DOUBLE, 0, 0);
+        public static final Type BOOLEAN = new Type(Kind.BOOLEAN, 0, 0);
+        public static final Type TEXT = new Type(Kind.TEXT, 0, 0);
+        public static final Type TIMESTAMP = new Type(Kind.TIMESTAMP, 0, 0);
+        public static final Type BLOB = new Type(Kind.BLOB, 0, 0);
+
+        private final Kind kind;
+        private final int length;
+        private final int scale;
+
+        private Type(Kind kind, int length, int scale) {
+            this.kind = kind;
+            this.length = length;
+            this.scale = scale;
+        }
+
+        /**
+         * @param length maximum count of characters
+         */
+        public static Type varchar(int length) {
+            return new Type(Kind.VARCHAR, length, 0);
+        }
+
+        /**
+         * @param precision count of digits
+         * @param scale     count of digits after the decimal point
+         */
+        public static Type decimal(int precision, int scale) {
+            return new Type(Kind.DECIMAL, precision, scale);
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+    }
+
+    public static class Column {
+
+        private final String name;
+        private final Type type;
+        private final boolean nullable;
+        private boolean autoIncrement;
+        private String defaultValue;
+
+        private Column(String name, Type type, boolean nullable) {
+            this.name = name;
+            this.type = type;
+            this.nullable = nullable;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        public boolean isAutoIncrement() {
+            return autoIncrement;
+        }
+
+        /**
+         * @return the default as sql expression or null if the column has none
+         */
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+    }
+
+    public static class Index {
+
+        private final String name;
+        private final boolean unique;
+        private final List<String> columns;
+
+        private Index(String name, boolean unique, String... columns) {
+            this.name = name;
+            this.unique = unique;
+            this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        private final List<String> primaryKey = new ArrayList<>();
+        private final List<Index> indexes = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds a nullable column
+         */
+        public Builder column(String name, Type type) {
+            return column(name, type, true);
+        }
+
+        /**
+         * @param name     name of the column
+         * @param type     type of the column
+         * @param nullable false to declare the column NOT NULL
+         */
+        public Builder column(String name, Type type, boolean nullable) {
+            columns.put(name, new Column(name, type, nullable));
+            return this;
+        }
+
+        /**
+         * @param column       an already added column
+         * @param defaultValue the default as sql expression, e.g. {@code "0"} or {@code "'unknown'"}
+         */
+        public Builder defaultValue(String column, String defaultValue) {
+            get(column).defaultValue = defaultValue;
+            return this;
+        }
+
+        /**
+         * @param column an already added integer column whose value is assigned by the database
+         */
+        public Builder autoIncrement(String column) {
+            get(column).autoIncrement = true;
+            return this;
+        }
+
+        /**
+         * @param columns the already added columns forming the primary key in their order
+         */
+        public Builder primaryKey(String... columns) {
+            for (String column : columns) {
+                get(column);
+            }
+            primaryKey.clear();
+            primaryKey.addAll(Arrays.asList(columns));
+            return this;
+        }
+
+        /**
+         * @param name    name of the index, unique within the database for some vendors
+         * @param columns the already added columns of the index in their order
+         */
+        public Builder index(String name, String... columns) {
+            return addIndex(new Index(name, false, columns));
+        }
+
+        /**
+         * @param name    name of the index, unique within the database for some vendors
+         * @param columns the already added columns whose combination has to be unique
+         */
+        public Builder uniqueIndex(String name, String... columns) {
+            return addIndex(new Index(name, true, columns));
+        }
+
+        private Builder addIndex(Index index) {
+            if (index.getColumns().isEmpty())
+                throw new IllegalArgumentException("The index " + index.getName() + " has no columns");
+            for (String column : index.getColumns()) {
+                get(column);
+            }
+            indexes.add(index);
+            return this;
+        }
+
+        private Column get(String column) {
+            Column result = columns.get(column);
+            if (result == null)
+                throw new IllegalArgumentException(String.format("The table %s has no column %s", name, column));
+            return result;
+        }
+
+        public TableSchema build() {
+            if (columns.isEmpty())
+                throw new IllegalArgumentException("The table " + name + " has no columns");
+            return new TableSchema(this);
+        }
+    }
+
+}
@@ -0,0 +1,239 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs several statements on one connection inside a single transaction.
+ * <br>
+ * How to use:
+ * <pre>
+ *   boolean transferred = databaseUtil.inTransaction(Connection.TRANSACTION_REPEATABLE_READ, tx -&gt; {
+ *       tx.execute("UPDATE inventory SET amount=amount-? WHERE player=? AND item=?", 1, sender, item);
+ *       Savepoint beforeBonus = tx.savepoint("bonus");
+ *       if (tx.execute("UPDATE bonus SET used=1 WHERE player=?", receiver) == 0)
+ *           tx.rollbackTo(beforeBonus);
+ *       return tx.execute("UPDATE inventory SET amount=amount+? WHERE player=? AND item=?", 1, receiver, item) == 1;
+ *   });
+ * </pre>
+ * <br>
+ * The work is committed once it returns and rolled back if it throws. Should the database abort the transaction
+ * because of a deadlock or a serialization failure the whole work is run again on a fresh transaction after a
+ * short randomized backoff, up to the given count of attempts. The work therefore must not have side effects
+ * outside of the transaction.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class Transaction {
+
+    /**
+     * Keeps the default isolation level of the connection
+     */
+    public static final int DEFAULT_ISOLATION = -1;
+
+    private final Connection connection;
+    private final List<String> executedStatements = new ArrayList<>();
+
+    private Transaction(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Runs the given work inside a transaction and retries it on deadlocks and serialization failures
+     *
+     * @param source      supplies the connection, it is closed after the transaction finished
+     * @param isolation   one of the {@link Connection} TRANSACTION constants or {@link #DEFAULT_ISOLATION}
+     * @param maxAttempts count of attempts before the last retryable failure is thrown
+     * @param work        the statements to run
+     * @return the result of the work
+     * @throws SQLException if the work failed and was rolled back
+     */
+    public static <T> T run(ConnectionSource source, int isolation, int maxAttempts, Work<T> work) throws SQLException {
+        return run(source, isolation, maxAttempts, work, null);
+    }
+
+    /**
+     * Like {@link #run(ConnectionSource, int, int, Work)} but reports every statement of the committed attempt
+     *
+     * @param committed receives the sql of every statement executed by the committed attempt, may be null
+     */
+    public static <T> T run(ConnectionSource source, int isolation, int maxAttempts, Work<T> work, Committed committed) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection connection = source.get()) {
+                int previousIsolation = connection.getTransactionIsolation();
+                boolean previousAutoCommit = connection.getAutoCommit();
+                try {
+                    if (isolation != DEFAULT_ISOLATION)
+                        connection.setTransactionIsolation(isolation);
+                    connection.setAutoCommit(false);
+                    Transaction transaction = new Transaction(connection);
+                    T result = work.run(transaction);
+                    connection.commit();
+                    if (committed != null)
+                        committed.accept(transaction.getExecutedStatements());
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    try {
+                        connection.rollback();
+                    } catch (SQLException rollbackError) {
+                        e.addSuppressed(rollbackError);
+                    }
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(previousAutoCommit);
+                    if (isolation != DEFAULT_ISOLATION)
+                        connection.setTransactionIsolation(previousIsolation);
+                }
+            } catch (SQLException e) {
+                if (attempt >= maxAttempts || !isRetryable(e))
+                    throw e;
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * @param e an exception thrown inside a transaction
+     * @return true if the database aborted the transaction because of a deadlock or serialization failure,
+     * timeouts and cancelled statements are not retried
+     */
+    public static boolean isRetryable(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            String state = current.getSQLState();
+            // serialization failure, PostgreSQL: deadlock detected
+            if ("40001".equals(state) || "40P01".equals(state))
+                return true;
+            // MySQL and MariaDB: deadlock found (1213), Oracle: deadlock detected (ORA-00060), can't serialize access (ORA-08177)
+            if (current.getErrorCode() == 1213 || current.getErrorCode() == 60 || current.getErrorCode() == 8177)
+                return true;
+        }
+        return false;
+    }
+
+    private static void backoff(int attempt) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L << Math.min(attempt, 6)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry a transaction", e);
+        }
+    }
+
+    /**
+     * Executes a sql statement inside this transaction
+     *
+     * @param sql        the sql statement to execute
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return the count of manipulations
+     */
+    public int execute(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; parameters != null && i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+            int result = ps.executeUpdate();
+            executedStatements.add(sql);
+            return result;
+        }
+    }
+
+    /**
+     * Executes a sql statement once for every parameter set using a jdbc batch inside this transaction
+     *
+     * @return the count of manipulations of every row
+     */
+    public int[] executeBatch(String sql, List<Object[]> rows) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Object[] parameters : rows) {
+                for (int i = 0; i < parameters.length; i++) {
+                    ps.setObject(i + 1, parameters[i]);
+                }
+                ps.addBatch();
+            }
+            int[] result = ps.executeBatch();
+            executedStatements.add(sql);
+            return result;
+        }
+    }
+
+    /**
+     * Runs a query inside this transaction, the returned cursor has to be closed before the work returns
+     *
+     * @param sql        the sql statement to run
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @return an open {@link RowCursor} positioned before the first row
+     */
+    public RowCursor cursor(String sql, Object... parameters) throws SQLException {
+        return RowCursor.openShared(connection, sql, 0, parameters);
+    }
+
+    /**
+     * Runs a query inside this transaction and maps every row onto an instance of the given class
+     *
+     * @return a {@link List} containing a mapped instance for every row
+     */
+    public <T> List<T> queryAs(String sql, Class<T> type, Object... parameters) throws SQLException {
+        BeanRowMapper<T> mapper = BeanRowMapper.of(type);
+        List<T> result = new ArrayList<>();
+        try (RowCursor cursor = cursor(sql, parameters)) {
+            while (cursor.next()) {
+                result.add(mapper.map(cursor));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param name name of the savepoint
+     * @return a {@link Savepoint} this transaction can be rolled back to
+     */
+    public Savepoint savepoint(String name) throws SQLException {
+        return connection.setSavepoint(name);
+    }
+
+    /**
+     * Undoes every statement executed after the given savepoint, the transaction itself stays active
+     */
+    public void rollbackTo(Savepoint savepoint) throws SQLException {
+        connection.rollback(savepoint);
+    }
+
+    /**
+     * Removes the given savepoint, the statements executed after it are kept
+     */
+    public void release(Savepoint savepoint) throws SQLException {
+        connection.releaseSavepoint(savepoint);
+    }
+
+    /**
+     * @return the connection of this transaction for statements this class does not offer, it must not be committed or closed
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return the sql of every statement executed through this transaction
+     */
+    public List<String> getExecutedStatements() {
+        return Collections.unmodifiableList(executedStatements);
+    }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Transaction transaction) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Committed {
+        void accept(List<String> executedStatements);
+    }
+
+}
@@ -0,0 +1,570 @@
+import javax.sql.DataSource;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps only the latest write per row in memory and writes them to the database in batches.
+ * <br>
+ * How to use:
+ * <pre>
+ *   WriteBehindQueue stats = databaseUtil.writeBehind(5, TimeUnit.SECONDS, Paths.get("plugins/Stats/stats.journal"));
+ *
+ *   // called on every kill, only the last update per player within 5 seconds reaches the database
+ *   stats.put("player_stats", player.getId(), "UPDATE player_stats SET kills=?, deaths=? WHERE id=?", kills, deaths, player.getId());
+ *
+ *   stats.close(); // on shutdown, writes everything that is still pending
+ * </pre>
+ * <br>
+ * Writes are keyed by table and primary key, a newer write for the same key replaces the pending one, so it has to
+ * contain the full new state of the row (e.g. an upsert or an update setting absolute values, never {@code kills=kills+1}).
+ * Every interval the pending writes are grouped by their sql and executed with jdbc batches. If a batch fails, its
+ * rows are written one by one, so a single bad row does not hold back the others. A row failing with a
+ * {@link SQLNonTransientException}, e.g. a constraint violation, is dropped and logged, any other failing row is queued
+ * again unless a newer write for its key arrived meanwhile and dropped after {@link #MAX_ATTEMPTS} failed flushes.
+ * Rows are never dropped while the database can not be reached.
+ * <br>
+ * With a journal every write is appended to a local file before {@link #put(String, Object, String, Object...)} returns
+ * and the journal is replayed when the queue is created, so writes survive a crash of the process. The journal is
+ * handed to the operating system on every write and forced to disk on every flush. Journaled parameters are limited to
+ * null, strings, numbers, booleans, byte arrays, {@link UUID}s and {@link Timestamp}s.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("WriteBehindQueue");
+    private static final AtomicInteger QUEUE_COUNTER = new AtomicInteger();
+    /**
+     * Count of flushes a row may fail in before it is dropped
+     */
+    public static final int MAX_ATTEMPTS = 5;
+
+    private final DataSource dataSource;
+    private final Path journalPath;
+    private final Path flushingPath;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Consumer<String> flushListener;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private Map<Key, Write> pending = new LinkedHashMap<>();
+    private DataOutputStream journal;
+    private FileOutputStream journalFile;
+    private boolean closed;
+
+    /**
+     * @param dataSource    the source connections are borrowed from
+     * @param flushInterval time between two flushes
+     * @param unit          unit of the flush interval
+     */
+    public WriteBehindQueue(DataSource dataSource, long flushInterval, TimeUnit unit) {
+        this(dataSource, flushInterval, unit, null);
+    }
+
+    /**
+     * @param dataSource    the source connections are borrowed from
+     * @param flushInterval time between two flushes
+     * @param unit          unit of the flush interval
+     * @param journal       file every write is appended to before it is acknowledged, null disables the journal
+     * @throws UncheckedIOException if the journal can not be replayed or opened
+     */
+    public WriteBehindQueue(DataSource dataSource, long flushInterval, TimeUnit unit, Path journal) {
+        this.dataSource = dataSource;
+        this.journalPath = journal;
+        this.flushingPath = journal == null ? null : Paths.get(journal + ".flushing");
+        if (journal != null) {
+            try {
+                replay();
+            } catch (IOException e) {
+                throw new UncheckedIOException("The write behind journal " + journal + " could not be opened", e);
+            }
+        }
+        String name = "WriteBehindQueue-" + QUEUE_COUNTER.incrementAndGet();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "There was an error flushing the write behind queue\n{0}", e.getMessage());
+            }
+        }, flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * @param flushListener called with the sql of every flushed group, e.g. to invalidate cached queries
+     */
+    public void setFlushListener(Consumer<String> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * Queues a write, replacing the pending write with the same table and key
+     *
+     * @param table      the table the write changes
+     * @param key        the primary key of the changed row, a {@link List} for composite keys
+     * @param sql        the sql statement writing the full state of the row
+     * @param parameters the parameters in the order they are inserted into the statement
+     * @throws IllegalStateException if the queue has been closed
+     * @throws UncheckedIOException  if the write could not be appended to the journal
+     */
+    public void put(String table, Object key, String sql, Object... parameters) {
+        Key pendingKey = new Key(table, key);
+        // copied, the caller may reuse the array before the write is flushed
+        Write write = new Write(sql, parameters == null ? null : parameters.clone());
+        synchronized (lock) {
+            if (closed)
+                throw new IllegalStateException("The write behind queue has been closed");
+            if (journal != null) {
+                try {
+                    append(pendingKey, write);
+                    journal.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("The write could not be appended to the journal", e);
+                }
+            }
+            if (pending.put(pendingKey, write) != null)
+                coalesced.increment();
+        }
+    }
+
+    /**
+     * @return count of rows waiting to be written
+     */
+    public int getPendingWrites() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return count of writes that were replaced by a newer write before they reached the database
+     */
+    public long getCoalescedWrites() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return count of writes that reached the database
+     */
+    public long getWrittenRows() {
+        return written.sum();
+    }
+
+    /**
+     * @return count of writes that were dropped because they failed permanently or too often
+     */
+    public long getDroppedWrites() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes every pending write now, failed rows are queued again or dropped and logged
+     *
+     * @return true if every pending write reached the database
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            return flushPending();
+        }
+    }
+
+    private boolean flushPending() {
+        Map<Key, Write> snapshot;
+        synchronized (lock) {
+            if (pending.isEmpty())
+                return true;
+            snapshot = pending;
+            pending = new LinkedHashMap<>();
+            rotateJournal();
+        }
+        Map<String, List<Map.Entry<Key, Write>>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Key, Write> entry : snapshot.entrySet()) {
+            groups.computeIfAbsent(entry.getValue().sql, sql -> new ArrayList<>()).add(entry);
+        }
+        boolean success = true;
+        try (Connection connection = dataSource.getConnection()) {
+            for (Map.Entry<String, List<Map.Entry<Key, Write>>> group : groups.entrySet()) {
+                if (!write(connection, group.getKey(), group.getValue()))
+                    success = false;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "There was an error borrowing a connection, {0} writes are queued again\n{1}", new Object[]{snapshot.size(), e.getMessage()});
+            requeue(snapshot.entrySet());
+            success = false;
+        }
+        synchronized (lock) {
+            if (journal != null) {
+                try {
+                    journalFile.getFD().sync();
+                    Files.deleteIfExists(flushingPath);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "There was an error syncing the write behind journal\n{0}", e.getMessage());
+                }
+            }
+        }
+        return success;
+    }
+
+    private boolean write(Connection connection, String sql, List<Map.Entry<Key, Write>> entries) {
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Write> entry : entries) {
+            rows.add(entry.getValue().parameters);
+        }
+        try {
+            BatchWriter.executeBatch(connection, sql, rows, 1000);
+            written.add(rows.size());
+            notifyFlushed(sql);
+            return true;
+        } catch (SQLException e) {
+            if (rows.size() == 1 || CircuitBreaker.isConnectionFailure(e)) {
+                failed(sql, entries, e);
+                return false;
+            }
+            LOGGER.log(Level.WARNING, "There was an error writing {0} rows in one batch, they are written one by one:\n{1}\n{2}", new Object[]{rows.size(), sql, e.getMessage()});
+        }
+        int successes = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            try {
+                BatchWriter.executeBatch(connection, sql, rows.subList(i, i + 1), 1);
+                successes++;
+            } catch (SQLException e) {
+                // the rest of the group would fail the same way, so it is queued again as a whole
+                if (CircuitBreaker.isConnectionFailure(e)) {
+                    failed(sql, entries.subList(i, entries.size()), e);
+                    break;
+                }
+                failed(sql, entries.subList(i, i + 1), e);
+            }
+        }
+        written.add(successes);
+        if (successes > 0)
+            notifyFlushed(sql);
+        return false;
+    }
+
+    private void notifyFlushed(String sql) {
+        Consumer<String> listener = this.flushListener;
+        if (listener != null)
+            listener.accept(sql);
+    }
+
+    /**
+     * Queues the entries of a failed write again, a connection failure never counts as attempt of a row.
+     * Entries that failed permanently or {@link #MAX_ATTEMPTS} times are dropped instead.
+     */
+    private void failed(String sql, List<Map.Entry<Key, Write>> entries, SQLException e) {
+        boolean connectionFailure = CircuitBreaker.isConnectionFailure(e);
+        boolean permanent = e instanceof SQLNonTransientException && !(e instanceof SQLNonTransientConnectionException);
+        List<Map.Entry<Key, Write>> retries = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Write> entry : entries) {
+            Write write = entry.getValue();
+            if (!connectionFailure && (permanent || ++write.attempts >= MAX_ATTEMPTS)) {
+                dropped.increment();
+                LOGGER.log(Level.SEVERE, "A write to {0} failed {1} and was dropped:\n{2}\n{3}\n{4}",
+                        new Object[]{entry.getKey().table, permanent ? "permanently" : write.attempts + " times", sql, Arrays.deepToString(write.parameters), e.getMessage()});
+            } else {
+                retries.add(entry);
+            }
+        }
+        if (retries.isEmpty())
+            return;
+        LOGGER.log(Level.WARNING, "There was an error writing {0} rows, they are queued again:\n{1}\n{2}", new Object[]{retries.size(), sql, e.getMessage()});
+        requeue(retries);
+    }
+
+    private void requeue(Collection<Map.Entry<Key, Write>> entries) {
+        synchronized (lock) {
+            for (Map.Entry<Key, Write> entry : entries) {
+                if (pending.putIfAbsent(entry.getKey(), entry.getValue()) == null && journal != null) {
+                    try {
+                        append(entry.getKey(), entry.getValue());
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "There was an error journaling a queued again write\n{0}", e.getMessage());
+                    }
+                }
+            }
+            if (journal != null) {
+                try {
+                    journal.flush();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "There was an error journaling a queued again write\n{0}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the timed flushes, writes every pending write and closes the journal
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (lock) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                    if (pending.isEmpty())
+                        Files.deleteIfExists(journalPath);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "There was an error closing the write behind journal\n{0}", e.getMessage());
+                }
+                journal = null;
+            }
+            if (!pending.isEmpty())
+                LOGGER.log(Level.SEVERE, "{0} writes could not be written before the queue was closed", pending.size());
+        }
+    }
+
+    //region journal
+    private void replay() throws IOException {
+        Map<Key, Write> replayed = new LinkedHashMap<>();
+        int records = read(flushingPath, replayed) + read(journalPath, replayed);
+        openJournal(false);
+        for (Map.Entry<Key, Write> entry : replayed.entrySet()) {
+            append(entry.getKey(), entry.getValue());
+        }
+        journal.flush();
+        journalFile.getFD().sync();
+        Files.deleteIfExists(flushingPath);
+        pending.putAll(replayed);
+        if (records > 0)
+            LOGGER.log(Level.INFO, "Replayed {0} writes for {1} rows from the journal {2}", new Object[]{records, replayed.size(), journalPath});
+    }
+
+    private static int read(Path path, Map<Key, Write> into) throws IOException {
+        if (!Files.exists(path))
+            return 0;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] record;
+                try {
+                    int length = in.readInt();
+                    long checksum = in.readLong();
+                    record = new byte[length];
+                    in.readFully(record);
+                    CRC32 crc = new CRC32();
+                    crc.update(record);
+                    if (crc.getValue() != checksum)
+                        break;
+                } catch (EOFException e) {
+                    break;
+                }
+                DataInputStream data = new DataInputStream(new ByteArrayInputStream(record));
+                String table = data.readUTF();
+                Object key = readValue(data);
+                String sql = data.readUTF();
+                Object[] parameters = new Object[data.readInt()];
+                for (int i = 0; i < parameters.length; i++) {
+                    parameters[i] = readValue(data);
+                }
+                into.put(new Key(table, key), new Write(sql, parameters));
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private void openJournal(boolean append) throws IOException {
+        journalFile = new FileOutputStream(journalPath.toFile(), append);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    }
+
+    private void rotateJournal() {
+        if (journal == null)
+            return;
+        try {
+            journal.close();
+            Files.move(journalPath, flushingPath, StandardCopyOption.REPLACE_EXISTING);
+            openJournal(false);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "There was an error rotating the write behind journal\n{0}", e.getMessage());
+            try {
+                openJournal(true);
+            } catch (IOException reopen) {
+                throw new UncheckedIOException("The write behind journal could not be reopened", reopen);
+            }
+        }
+    }
+
+    private void append(Key key, Write write) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeUTF(key.table);
+        writeValue(data, key.key);
+        data.writeUTF(write.sql);
+        data.writeInt(write.parameters.length);
+        for (Object parameter : write.parameters) {
+            writeValue(data, parameter);
+        }
+        byte[] record = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        journal.writeInt(record.length);
+        journal.writeLong(crc.getValue());
+        journal.write(record);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+        } else if (value instanceof String) {
+            byte[] utf = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(1);
+            out.writeInt(utf.length);
+            out.write(utf);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(2);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(3);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(4);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(5);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(6);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof byte[]) {
+            out.writeByte(7);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else if (value instanceof UUID) {
+            out.writeByte(8);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(9);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(10);
+            out.writeUTF(value.toString());
+        } else if (value instanceof List) {
+            out.writeByte(11);
+            out.writeInt(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                writeValue(out, element);
+            }
+        } else {
+            throw new IOException("Values of type " + value.getClass().getName() + " can not be journaled");
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case 0: return null;
+            case 1: {
+                byte[] utf = new byte[in.readInt()];
+                in.readFully(utf);
+                return new String(utf, StandardCharsets.UTF_8);
+            }
+            case 2: return in.readInt();
+            case 3: return in.readLong();
+            case 4: return in.readDouble();
+            case 5: return in.readFloat();
+            case 6: return in.readBoolean();
+            case 7: {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            }
+            case 8: return new UUID(in.readLong(), in.readLong());
+            case 9: {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            }
+            case 10: return new BigDecimal(in.readUTF());
+            case 11: {
+                List<Object> list = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            default: throw new IOException("Unknown value type " + type + " in the journal");
+        }
+    }
+    //endregion
+
+    private static class Key {
+
+        private final String table;
+        private final Object key;
+
+        private Key(String table, Object key) {
+            this.table = table;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other)
+                return true;
+            if (!(other instanceof Key))
+                return false;
+            return table.equals(((Key) other).table) && Objects.equals(key, ((Key) other).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * table.hashCode() + Objects.hashCode(key);
+        }
+    }
+
+    private static class Write {
+
+        private final String sql;
+        private final Object[] parameters;
+        // failed flushes of this write, only touched while flushing
+        private int attempts;
+
+        private Write(String sql, Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters == null ? new Object[0] : parameters;
+        }
+    }
+
+}
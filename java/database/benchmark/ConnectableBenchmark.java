@@ -0,0 +1,76 @@
+package de.idkwhoami.utils.database.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the {@code VariousSQLDatabase.Connectable} classes that can run against an embedded database,
+ * using the same table and rows as {@link DatabaseBenchmark}.
+ * <br>
+ * How to use:
+ * <pre>
+ *   java -cp "out:lib/*" de.idkwhoami.utils.database.benchmark.ConnectableBenchmark
+ * </pre>
+ * <br>
+ * SQLite is the only embedded database with a connectable, so {@link #backend} only lists it. A connectable for
+ * another embedded database is benchmarked by adding it to the parameter and to {@link #setUp()}.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectableBenchmark {
+
+    @Param({"sqlite"})
+    public String backend;
+
+    private DatabaseAdapter.SQLite sqlite;
+    private File sqliteFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sqliteFile = Files.createTempFile("connectable-benchmark", ".db").toFile();
+        sqlite = new DatabaseAdapter.SQLite(sqliteFile.getAbsolutePath());
+        sqlite.openConnection(1);
+        sqlite.update(DatabaseBenchmark.CREATE);
+        List<Object[]> rows = new ArrayList<>(DatabaseBenchmark.ROWS);
+        for (long id = 0; id < DatabaseBenchmark.ROWS; id++) {
+            rows.add(DatabaseBenchmark.row(id));
+        }
+        sqlite.updateBatch(DatabaseBenchmark.INSERT, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sqlite.closeConnection();
+        sqliteFile.delete();
+    }
+
+    @Benchmark
+    public int pointLookup() throws SQLException {
+        try (ResultSet rs = sqlite.query(DatabaseBenchmark.POINT_LOOKUP, DatabaseBenchmark.randomId())) {
+            return rs.next() ? rs.getInt(3) : -1;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ConnectableBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,307 @@
+package de.idkwhoami.utils.database.benchmark;
+
+import com.google.common.collect.Table;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Gives the benchmarks access to the database classes.
+ * <br>
+ * The database classes live in the default package, which can not be imported from a named package, and JMH rejects
+ * benchmarks in the default package. The adapter looks the methods up once as {@link MethodHandle}s held in static
+ * final fields, so the JIT compiles a call like a direct one and the benchmarks measure the database classes only.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+final class DatabaseAdapter {
+
+    private static final MethodHandle POOL_BUILDER;
+    private static final MethodHandle BUILDER_MIN_SIZE;
+    private static final MethodHandle BUILDER_MAX_SIZE;
+    private static final MethodHandle BUILDER_STATEMENT_CACHE_SIZE;
+    private static final MethodHandle BUILDER_BUILD;
+    private static final MethodHandle UTIL_NEW;
+    private static final MethodHandle UTIL_EXECUTE;
+    private static final MethodHandle UTIL_EXECUTE_BATCH;
+    private static final MethodHandle UTIL_QUERY;
+    private static final MethodHandle UTIL_QUERY_AS;
+    private static final MethodHandle UTIL_FOR_EACH_ROW;
+    private static final MethodHandle UTIL_CLOSE;
+    private static final Class<?> ROW_CALLBACK;
+    private static final MethodHandle ROW_ACCEPT;
+    private static final MethodHandle ROW_BIND;
+    private static final MethodHandle ROW_GET_LONG;
+    private static final MethodHandle ROW_GET_INT;
+    private static final MethodHandle ROW_GET_DOUBLE;
+    private static final MethodHandle ROW_GET_STRING;
+    private static final MethodHandle SQLITE_NEW;
+    private static final MethodHandle SQLITE_OPEN;
+    private static final MethodHandle SQLITE_UPDATE;
+    private static final MethodHandle SQLITE_UPDATE_BATCH;
+    private static final MethodHandle SQLITE_QUERY;
+    private static final MethodHandle SQLITE_CLOSE;
+
+    static {
+        try {
+            Class<?> pool = Class.forName("ConnectionPool");
+            Class<?> builder = Class.forName("ConnectionPool$Builder");
+            Class<?> util = Class.forName("DatabaseUtil");
+            Class<?> cursor = Class.forName("RowCursor");
+            Class<?> sqlite = Class.forName("VariousSQLDatabase$SQLite");
+            ROW_CALLBACK = Class.forName("RowCursor$RowCallback");
+            POOL_BUILDER = method(pool, "builder", String.class);
+            BUILDER_MIN_SIZE = method(builder, "minSize", int.class);
+            BUILDER_MAX_SIZE = method(builder, "maxSize", int.class);
+            BUILDER_STATEMENT_CACHE_SIZE = method(builder, "statementCacheSize", int.class);
+            BUILDER_BUILD = method(builder, "build");
+            UTIL_NEW = constructor(util, pool);
+            UTIL_EXECUTE = method(util, "execute", String.class, Object[].class);
+            UTIL_EXECUTE_BATCH = method(util, "executeBatch", String.class, List.class);
+            UTIL_QUERY = method(util, "query", String.class, Object[].class);
+            UTIL_QUERY_AS = method(util, "queryAs", String.class, Class.class, Object[].class);
+            UTIL_FOR_EACH_ROW = method(util, "forEachRow", String.class, int.class, ROW_CALLBACK, Object[].class);
+            UTIL_CLOSE = method(util, "closeConnection");
+            ROW_ACCEPT = MethodHandles.lookup().findVirtual(RowCallback.class, "accept", MethodType.methodType(void.class, Row.class));
+            ROW_BIND = MethodHandles.lookup().findVirtual(Row.class, "bind", MethodType.methodType(Row.class, Object.class));
+            ROW_GET_LONG = method(cursor, "getLong", int.class);
+            ROW_GET_INT = method(cursor, "getInt", int.class);
+            ROW_GET_DOUBLE = method(cursor, "getDouble", int.class);
+            ROW_GET_STRING = method(cursor, "getString", int.class);
+            SQLITE_NEW = constructor(sqlite, String.class);
+            SQLITE_OPEN = method(sqlite, "openConnection", int.class);
+            SQLITE_UPDATE = method(sqlite, "update", String.class, Object[].class);
+            SQLITE_UPDATE_BATCH = method(sqlite, "updateBatch", String.class, List.class);
+            SQLITE_QUERY = method(sqlite, "query", String.class, Object[].class);
+            SQLITE_CLOSE = method(sqlite, "closeConnection");
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... parameters) throws ReflectiveOperationException {
+        Method method = owner.getMethod(name, parameters);
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method).asFixedArity();
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) throws ReflectiveOperationException {
+        Constructor<?> constructor = owner.getConstructor(parameters);
+        constructor.setAccessible(true);
+        return MethodHandles.lookup().unreflectConstructor(constructor);
+    }
+
+    private DatabaseAdapter() {
+    }
+
+    /**
+     * A {@code DatabaseUtil} on a {@code ConnectionPool}
+     */
+    static final class Util {
+
+        private final Object util;
+
+        /**
+         * @param url                jdbc url of the pool
+         * @param maxSize            maximum count of pooled connections
+         * @param statementCacheSize count of prepared statements cached per connection
+         */
+        Util(String url, int maxSize, int statementCacheSize) {
+            try {
+                Object builder = POOL_BUILDER.invoke(url);
+                builder = BUILDER_MIN_SIZE.invoke(builder, 1);
+                builder = BUILDER_MAX_SIZE.invoke(builder, maxSize);
+                builder = BUILDER_STATEMENT_CACHE_SIZE.invoke(builder, statementCacheSize);
+                util = UTIL_NEW.invoke(BUILDER_BUILD.invoke(builder));
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        int execute(String sql, Object... parameters) {
+            try {
+                return (int) UTIL_EXECUTE.invoke(util, sql, parameters);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        int[] executeBatch(String sql, List<Object[]> rows) {
+            try {
+                return (int[]) UTIL_EXECUTE_BATCH.invoke(util, sql, rows);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Table<Integer, String, Object> query(String sql, Object... parameters) {
+            try {
+                return (Table<Integer, String, Object>) UTIL_QUERY.invoke(util, sql, parameters);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> List<T> queryAs(String sql, Class<T> type, Object... parameters) {
+            try {
+                return (List<T>) UTIL_QUERY_AS.invoke(util, sql, type, parameters);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        /**
+         * @param callback called for every row, the {@link Row} is the same object for all rows of a scan
+         */
+        boolean forEachRow(String sql, int fetchSize, RowCallback callback, Object... parameters) {
+            Row row = new Row();
+            // (cursor) -> callback.accept(row.bind(cursor))
+            MethodHandle accept = MethodHandles.filterArguments(ROW_ACCEPT.bindTo(callback), 0, ROW_BIND.bindTo(row));
+            try {
+                Object proxy = MethodHandleProxies.asInterfaceInstance(ROW_CALLBACK, accept);
+                return (boolean) UTIL_FOR_EACH_ROW.invoke(util, sql, fetchSize, proxy, parameters);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        void closeConnection() {
+            try {
+                UTIL_CLOSE.invoke(util);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+    }
+
+    /**
+     * The current row of a {@code RowCursor}
+     */
+    static final class Row {
+
+        private Object cursor;
+
+        private Row bind(Object cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        long getLong(int column) throws SQLException {
+            try {
+                return (long) ROW_GET_LONG.invoke(cursor, column);
+            } catch (Throwable e) {
+                throw checked(e);
+            }
+        }
+
+        int getInt(int column) throws SQLException {
+            try {
+                return (int) ROW_GET_INT.invoke(cursor, column);
+            } catch (Throwable e) {
+                throw checked(e);
+            }
+        }
+
+        double getDouble(int column) throws SQLException {
+            try {
+                return (double) ROW_GET_DOUBLE.invoke(cursor, column);
+            } catch (Throwable e) {
+                throw checked(e);
+            }
+        }
+
+        String getString(int column) throws SQLException {
+            try {
+                return (String) ROW_GET_STRING.invoke(cursor, column);
+            } catch (Throwable e) {
+                throw checked(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RowCallback {
+        void accept(Row row) throws SQLException;
+    }
+
+    /**
+     * A {@code VariousSQLDatabase.SQLite} connectable
+     */
+    static final class SQLite {
+
+        private final Object sqlite;
+
+        SQLite(String fileName) {
+            try {
+                sqlite = SQLITE_NEW.invoke(fileName);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        void openConnection(int maxConnections) {
+            try {
+                SQLITE_OPEN.invoke(sqlite, maxConnections);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        int update(String sql, Object... parameters) {
+            try {
+                return (int) SQLITE_UPDATE.invoke(sqlite, sql, parameters);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        int[] updateBatch(String sql, List<Object[]> rows) {
+            try {
+                return (int[]) SQLITE_UPDATE_BATCH.invoke(sqlite, sql, rows);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        ResultSet query(String sql, Object... parameters) {
+            try {
+                return (ResultSet) SQLITE_QUERY.invoke(sqlite, sql, parameters);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        void closeConnection() {
+            try {
+                SQLITE_CLOSE.invoke(sqlite);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IllegalStateException(e);
+    }
+
+    private static SQLException checked(Throwable e) {
+        if (e instanceof SQLException)
+            return (SQLException) e;
+        throw unchecked(e);
+    }
+
+}
@@ -0,0 +1,185 @@
+package de.idkwhoami.utils.database.benchmark;
+
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@code DatabaseUtil} against embedded databases, so every change to the database classes can be
+ * measured locally without a database server. {@code VariousSQLDatabase.SQLite} is measured by {@link ConnectableBenchmark}.
+ * <br>
+ * The database classes live in the default package, the benchmarks reach them through {@link DatabaseAdapter}.
+ * <br>
+ * How to use:
+ * <pre>
+ *   javac -cp "lib/*" -d out database/*.java database/benchmark/*.java
+ *   java -cp "out:lib/*" de.idkwhoami.utils.database.benchmark.DatabaseBenchmark
+ *
+ *   // or run a single benchmark with the JMH command line
+ *   java -cp "out:lib/*" org.openjdk.jmh.Main "DatabaseBenchmark.pointLookup" -p backend=h2
+ * </pre>
+ * <br>
+ * Every benchmark runs against an H2 in-memory database and a SQLite file in the temp directory, both are filled
+ * with {@link #ROWS} rows before each trial. The following dependencies are needed next to the ones of the database classes
+ * <br>
+ *
+ * <pre>
+ * {@code
+ *     <!-- https://mvnrepository.com/artifact/org.openjdk.jmh/jmh-core -->
+ *     <dependency>
+ *         <groupId>org.openjdk.jmh</groupId>
+ *         <artifactId>jmh-core</artifactId>
+ *         <version>1.37</version>
+ *     </dependency>
+ *     <!-- https://mvnrepository.com/artifact/org.openjdk.jmh/jmh-generator-annprocess -->
+ *     <dependency>
+ *         <groupId>org.openjdk.jmh</groupId>
+ *         <artifactId>jmh-generator-annprocess</artifactId>
+ *         <version>1.37</version>
+ *     </dependency>
+ *     <!-- https://mvnrepository.com/artifact/com.h2database/h2 -->
+ *     <dependency>
+ *         <groupId>com.h2database</groupId>
+ *         <artifactId>h2</artifactId>
+ *         <version>2.2.224</version>
+ *     </dependency>
+ *     <!-- https://mvnrepository.com/artifact/org.xerial/sqlite-jdbc -->
+ *     <dependency>
+ *         <groupId>org.xerial</groupId>
+ *         <artifactId>sqlite-jdbc</artifactId>
+ *         <version>3.45.1.0</version>
+ *     </dependency>
+ * }
+ * </pre>
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    public static final int ROWS = 10_000;
+    public static final int BATCH_SIZE = 100;
+    public static final int RANGE_SIZE = 500;
+
+    static final String CREATE = "CREATE TABLE IF NOT EXISTS player_stats (id BIGINT PRIMARY KEY, name VARCHAR(32), kills INT, deaths INT, score DOUBLE)";
+    static final String INSERT = "INSERT INTO player_stats (id, name, kills, deaths, score) VALUES (?, ?, ?, ?, ?)";
+    static final String POINT_LOOKUP = "SELECT id, name, kills, deaths, score FROM player_stats WHERE id=?";
+    private static final String RANGE_SCAN = "SELECT id, name, kills, deaths, score FROM player_stats WHERE id BETWEEN ? AND ?";
+
+    @Param({"h2", "sqlite"})
+    public String backend;
+
+    private DatabaseAdapter.Util databaseUtil;
+    private File sqliteFile;
+    private long nextId;
+
+    public static class PlayerStats {
+        private long id;
+        private String name;
+        private int kills;
+        private int deaths;
+        private double score;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String url;
+        if ("sqlite".equals(backend)) {
+            sqliteFile = Files.createTempFile("database-benchmark", ".db").toFile();
+            url = "jdbc:sqlite:" + sqliteFile.getAbsolutePath();
+        } else {
+            url = "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+        }
+        databaseUtil = new DatabaseAdapter.Util(url, "sqlite".equals(backend) ? 1 : 4, 32);
+        databaseUtil.execute("DROP TABLE IF EXISTS player_stats");
+        databaseUtil.execute(CREATE);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (long id = 0; id < ROWS; id++) {
+            rows.add(row(id));
+        }
+        databaseUtil.executeBatch(INSERT, rows);
+        nextId = ROWS;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        databaseUtil.execute("DROP TABLE IF EXISTS player_stats");
+        databaseUtil.closeConnection();
+        if (sqliteFile != null)
+            sqliteFile.delete();
+    }
+
+    static Object[] row(long id) {
+        return new Object[]{id, "player" + id, (int) (id % 100), (int) (id % 37), id * 1.5};
+    }
+
+    static long randomId() {
+        return ThreadLocalRandom.current().nextLong(ROWS - RANGE_SIZE);
+    }
+
+    @Benchmark
+    public int singleInsert() {
+        return databaseUtil.execute(INSERT, row(nextId++));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] batchInsert() {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            rows.add(row(nextId++));
+        }
+        return databaseUtil.executeBatch(INSERT, rows);
+    }
+
+    @Benchmark
+    public Table<Integer, String, Object> pointLookup() {
+        return databaseUtil.query(POINT_LOOKUP, randomId());
+    }
+
+    @Benchmark
+    public void rangeScanCursor(Blackhole blackhole) {
+        long from = randomId();
+        databaseUtil.forEachRow(RANGE_SCAN, 0, row -> {
+            blackhole.consume(row.getLong(1));
+            blackhole.consume(row.getString(2));
+            blackhole.consume(row.getInt(3));
+            blackhole.consume(row.getInt(4));
+            blackhole.consume(row.getDouble(5));
+        }, from, from + RANGE_SIZE);
+    }
+
+    @Benchmark
+    public Table<Integer, String, Object> rangeScanTable() {
+        long from = randomId();
+        return databaseUtil.query(RANGE_SCAN, from, from + RANGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PlayerStats> rangeScanMapped() {
+        long from = randomId();
+        return databaseUtil.queryAs(RANGE_SCAN, PlayerStats.class, from, from + RANGE_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DatabaseBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
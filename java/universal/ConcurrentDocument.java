@@ -0,0 +1,728 @@
+package de.idkwhoami.utils.other;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread safe variant of {@link Document} for documents shared between the main thread and async tasks.
+ * <br>
+ * How to use:
+ * <pre>
+ *   ConcurrentDocument document = ConcurrentDocument.fromJson(json);
+ *
+ *   // any thread
+ *   int kills = document.getInt("players.stats.kills", 0);
+ *   document.merge("players.stats.kills", 1, (old, one) -&gt; ((Number) old).intValue() + 1);
+ *   document.createNode("players.stats").computeIfAbsent("firstJoin", key -&gt; System.currentTimeMillis());
+ *
+ *   Bukkit.getScheduler().runTaskAsynchronously(plugin, () -&gt; save(document.toJson()));
+ * </pre>
+ * <br>
+ * Every node holds its data and children in an immutable state that is replaced as a whole on every change
+ * (copy-on-write per node). Reads therefore never lock and never see a half applied change, they only read a volatile
+ * field and a {@link HashMap} that is not modified anymore. Writes lock the node they change, so writes to different
+ * nodes run in parallel and {@link ConcurrentNode#compute(String, BiFunction)}, {@link ConcurrentNode#merge(String, Object, BiFunction)}
+ * and {@link ConcurrentNode#putIfAbsent(String, Object)} are atomic per node. A write copies the data of its node, nodes
+ * with a lot of frequently written entries should be split into child nodes.
+ * <br>
+ * Each node is consistent on its own while serializing, changes to other nodes during serialization may or may not
+ * be included. The stored values themselves are not copied, mutable values like lists must not be changed after they
+ * were put.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public class ConcurrentDocument {
+
+    /**
+     * Holds the root data layer as its data and the root nodes as its children
+     */
+    private final ConcurrentNode root = new ConcurrentNode(null, null);
+
+    /**
+     * Creates a new {@link ConcurrentDocument} with a default root node 'document' for internal data
+     */
+    public ConcurrentDocument() {
+        ConcurrentNode node = root.createChildNode("document");
+        node.put("version", "0.0.1");
+        node.put("author", "IDK_WHO_AM_I");
+    }
+
+    /**
+     * Creates a {@link ConcurrentDocument} containing a copy of the data and node tree of the given document
+     *
+     * @param document the {@link Document} to copy, the values themselves are not copied
+     */
+    public ConcurrentDocument(Document document) {
+        root.state = copyOf(root, document.getData(), document.getNodes());
+    }
+
+    private static State copyOf(ConcurrentNode parent, Map<String, Object> data, List<Document.DocumentNode> nodes) {
+        ConcurrentNode[] children = new ConcurrentNode[nodes == null ? 0 : nodes.size()];
+        int i = 0;
+        if (nodes != null) {
+            for (Document.DocumentNode node : nodes) {
+                String path = node.getNodeKeyPath() != null ? node.getNodeKeyPath() : parent.childPath(node.getNodeKey());
+                ConcurrentNode child = new ConcurrentNode(node.getNodeKey(), path);
+                child.state = copyOf(child, node.getNodeData(), node.getChildNodes());
+                children[i++] = child;
+            }
+        }
+        return new State(data == null ? new LinkedHashMap<>() : new LinkedHashMap<>(data), children);
+    }
+
+    //region Data
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link String} containing the stored data found at the given key
+     */
+    public String getString(String key) {
+        return get(DocumentPath.of(key), String.class);
+    }
+
+    public String getString(DocumentPath path) {
+        return get(path, String.class);
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Double} containing the stored number found at the given key
+     */
+    public Double getDouble(String key) {
+        return getDouble(DocumentPath.of(key));
+    }
+
+    public Double getDouble(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Integer} containing the stored number found at the given key
+     */
+    public Integer getInteger(String key) {
+        return getInteger(DocumentPath.of(key));
+    }
+
+    public Integer getInteger(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.intValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Long} containing the stored number found at the given key
+     */
+    public Long getLong(String key) {
+        return getLong(DocumentPath.of(key));
+    }
+
+    public Long getLong(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.longValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Float} containing the stored number found at the given key
+     */
+    public Float getFloat(String key) {
+        return getFloat(DocumentPath.of(key));
+    }
+
+    public Float getFloat(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.floatValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Boolean} containing the stored data found at the given key
+     */
+    public Boolean getBoolean(String key) {
+        return get(DocumentPath.of(key), Boolean.class);
+    }
+
+    public Boolean getBoolean(DocumentPath path) {
+        return get(path, Boolean.class);
+    }
+
+    public UUID getUUID(String key) {
+        return getUUID(DocumentPath.of(key));
+    }
+
+    public UUID getUUID(DocumentPath path) {
+        String value = get(path, String.class);
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return getInt(DocumentPath.of(key), defaultValue);
+    }
+
+    public int getInt(DocumentPath path, int defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.intValue();
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return getLong(DocumentPath.of(key), defaultValue);
+    }
+
+    public long getLong(DocumentPath path, long defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.longValue();
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        return getDouble(DocumentPath.of(key), defaultValue);
+    }
+
+    public double getDouble(DocumentPath path, double defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.doubleValue();
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return getBoolean(DocumentPath.of(key), defaultValue);
+    }
+
+    public boolean getBoolean(DocumentPath path, boolean defaultValue) {
+        Boolean value = get(path, Boolean.class);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @param key   root data key or nodeKey separated by '.'
+     * @param clazz the {@link Class<T>} the data is casted to
+     * @return a {@link Object} containing the stored data found at the given key
+     */
+    public <T> T getObject(String key, Class<T> clazz) {
+        return get(DocumentPath.of(key), clazz);
+    }
+
+    public <T> T getObject(DocumentPath path, Class<T> clazz) {
+        return get(path, clazz);
+    }
+
+    public Object getObject(String key) {
+        return get(DocumentPath.of(key), Object.class);
+    }
+
+    private <T> T get(DocumentPath path, Class<T> clazz) {
+        Object value = root.state.data.get(path.toString());
+        if (value != null || !path.isNested())
+            return Document.cast(value, clazz);
+        ConcurrentNode node = resolve(path, path.size() - 1);
+        return node == null ? null : node.get(path.getKey(), clazz);
+    }
+
+    /**
+     * @param key root data key
+     * @return true if the root data layer contains the given key
+     */
+    public boolean contains(String key) {
+        return root.state.data.containsKey(key);
+    }
+
+    /**
+     * Insert a value into the root data layer or any node data layer
+     *
+     * @param key   root data key or nodeKey separated by '.'
+     * @param value {@link T} the value to be inserted
+     */
+    public <T> void put(String key, T value) {
+        put(DocumentPath.of(key), value);
+    }
+
+    public <T> void put(DocumentPath path, T value) {
+        parentOf(path).put(path.getKey(), value);
+    }
+
+    /**
+     * Atomically inserts a value unless the key is already present
+     *
+     * @return the present value or null if the given value was inserted
+     */
+    public Object putIfAbsent(String key, Object value) {
+        return putIfAbsent(DocumentPath.of(key), value);
+    }
+
+    public Object putIfAbsent(DocumentPath path, Object value) {
+        return parentOf(path).putIfAbsent(path.getKey(), value);
+    }
+
+    /**
+     * Atomically computes a new value, see {@link Map#compute(Object, BiFunction)}
+     *
+     * @param key      root data key or nodeKey separated by '.'
+     * @param function computes the new value from the key and the present value or null, a null result removes the key
+     * @return the new value
+     */
+    public Object compute(String key, BiFunction<? super String, Object, Object> function) {
+        return compute(DocumentPath.of(key), function);
+    }
+
+    public Object compute(DocumentPath path, BiFunction<? super String, Object, Object> function) {
+        return parentOf(path).compute(path.getKey(), function);
+    }
+
+    /**
+     * Atomically computes a value if the key is absent, see {@link Map#computeIfAbsent(Object, Function)}
+     *
+     * @return the present or computed value
+     */
+    public Object computeIfAbsent(String key, Function<? super String, Object> function) {
+        return computeIfAbsent(DocumentPath.of(key), function);
+    }
+
+    public Object computeIfAbsent(DocumentPath path, Function<? super String, Object> function) {
+        return parentOf(path).computeIfAbsent(path.getKey(), function);
+    }
+
+    /**
+     * Atomically inserts the value or combines it with the present one, see {@link Map#merge(Object, Object, BiFunction)}
+     *
+     * @param key      root data key or nodeKey separated by '.'
+     * @param value    the value inserted if the key is absent
+     * @param function combines the present value with the given one, a null result removes the key
+     * @return the new value
+     */
+    public Object merge(String key, Object value, BiFunction<Object, Object, Object> function) {
+        return merge(DocumentPath.of(key), value, function);
+    }
+
+    public Object merge(DocumentPath path, Object value, BiFunction<Object, Object, Object> function) {
+        return parentOf(path).merge(path.getKey(), value, function);
+    }
+
+    /**
+     * Delete any node or data identified by the given key, like {@link Document#remove(String)} a key separated by '.'
+     * removes the node at that key
+     *
+     * @param nodeKey root data key or nodeKey separated by '.'
+     */
+    public void remove(String nodeKey) {
+        remove(DocumentPath.of(nodeKey));
+    }
+
+    public void remove(DocumentPath path) {
+        if (path.isNested()) {
+            ConcurrentNode parent = resolve(path, path.size() - 1);
+            if (parent != null)
+                parent.removeChildNode(path.getKey());
+        } else {
+            root.remove(path.getKey());
+        }
+    }
+
+    /**
+     * @return a read only view of the root data layer at the time of the call
+     */
+    public Map<String, Object> getData() {
+        return root.getNodeData();
+    }
+
+    private ConcurrentNode parentOf(DocumentPath path) {
+        if (!path.isNested())
+            return root;
+        ConcurrentNode node = resolve(path, path.size() - 1);
+        if (node == null)
+            throw new IllegalArgumentException("There is no node " + path.prefix(path.size() - 1));
+        return node;
+    }
+
+    private ConcurrentNode resolve(DocumentPath path, int depth) {
+        ConcurrentNode node = root;
+        for (int i = 0; node != null && i < depth; i++) {
+            node = node.state.index.get(path.getLowerCaseSegment(i));
+        }
+        return node;
+    }
+    //endregion
+
+    //region Nodes
+
+    /**
+     * @param nodeKey root nodeKey (contains no separator)
+     * @return true if the root nodes contain the given nodeKey
+     */
+    public boolean existsRootNode(String nodeKey) {
+        return root.existsChildNode(nodeKey);
+    }
+
+    /**
+     * @param nodeKey root nodeKey (contains no separator)
+     * @return {@link ConcurrentNode} identified by the given root nodeKey
+     */
+    public ConcurrentNode getRootNode(String nodeKey) {
+        return root.getChildNode(nodeKey);
+    }
+
+    /**
+     * @return a read only view of the root nodes at the time of the call
+     */
+    public List<ConcurrentNode> getNodes() {
+        return root.getChildNodes();
+    }
+
+    /**
+     * @param nodeKey nodeKey separated by '.'
+     * @return the {@link ConcurrentNode} or null if there is no node at the given key
+     */
+    public ConcurrentNode getNode(String nodeKey) {
+        return getNode(DocumentPath.of(nodeKey));
+    }
+
+    public ConcurrentNode getNode(DocumentPath path) {
+        return resolve(path, path.size());
+    }
+
+    /**
+     * Atomically creates the node and all missing nodes on the way, existing nodes are reused
+     *
+     * @param parentKey nodeKey separated by '.'
+     * @return the created or existing {@link ConcurrentNode}
+     */
+    public ConcurrentNode createNode(String parentKey) {
+        return createNode(DocumentPath.of(parentKey));
+    }
+
+    public ConcurrentNode createNode(DocumentPath path) {
+        ConcurrentNode node = root;
+        for (int i = 0; i < path.size(); i++) {
+            node = node.createChildNode(path.getSegment(i));
+        }
+        return node;
+    }
+    //endregion
+
+    //region Serialization
+
+    /**
+     * @return a mutable {@link Document} containing a copy of the data and node tree
+     */
+    public Document toDocument() {
+        return toDocument(true);
+    }
+
+    /**
+     * @param copy false to let the document share the immutable data maps, it must only be read then
+     */
+    private Document toDocument(boolean copy) {
+        State state = root.state;
+        return Document.restore(copy ? new LinkedHashMap<>(state.data) : state.data, toDocumentNodes(state.children, copy));
+    }
+
+    private static LinkedList<Document.DocumentNode> toDocumentNodes(ConcurrentNode[] nodes, boolean copy) {
+        LinkedList<Document.DocumentNode> documentNodes = new LinkedList<>();
+        for (ConcurrentNode node : nodes) {
+            State state = node.state;
+            Document.DocumentNode documentNode = new Document.DocumentNode(node.nodeKey, copy ? new LinkedHashMap<>(state.data) : state.data);
+            documentNode.setNodeKeyPath(node.nodeKeyPath);
+            documentNode.getChildNodes().addAll(toDocumentNodes(state.children, copy));
+            documentNodes.add(documentNode);
+        }
+        return documentNodes;
+    }
+
+    /**
+     * @see Document#toJson()
+     */
+    public String toJson() {
+        return toDocument(false).toJson();
+    }
+
+    /**
+     * @see Document#toCompactJson()
+     */
+    public String toCompactJson() {
+        return toDocument(false).toCompactJson();
+    }
+
+    /**
+     * @see Document#writeJson(Writer)
+     */
+    public void writeJson(Writer writer) throws IOException {
+        toDocument(false).writeJson(writer);
+    }
+
+    /**
+     * @see Document#toBinary()
+     */
+    public byte[] toBinary() {
+        return toDocument(false).toBinary();
+    }
+
+    /**
+     * @see Document#writeBinary(OutputStream)
+     */
+    public void writeBinary(OutputStream out) throws IOException {
+        toDocument(false).writeBinary(out);
+    }
+
+    /**
+     * @see Document#fromJson(String)
+     */
+    public static ConcurrentDocument fromJson(String json) {
+        return new ConcurrentDocument(Document.fromJson(json));
+    }
+
+    /**
+     * @see Document#readJson(Reader, DocumentPath...)
+     */
+    public static ConcurrentDocument readJson(Reader reader, DocumentPath... subtrees) throws IOException {
+        return new ConcurrentDocument(Document.readJson(reader, subtrees));
+    }
+
+    /**
+     * @see Document#fromBinary(byte[])
+     */
+    public static ConcurrentDocument fromBinary(byte[] bytes) throws IOException {
+        return new ConcurrentDocument(Document.fromBinary(bytes));
+    }
+
+    /**
+     * @see Document#readBinary(InputStream)
+     */
+    public static ConcurrentDocument readBinary(InputStream in) throws IOException {
+        return new ConcurrentDocument(Document.readBinary(in));
+    }
+    //endregion
+
+    /**
+     * The immutable content of a node, replaced as a whole on every change
+     */
+    private static final class State {
+
+        private final LinkedHashMap<String, Object> data;
+        private final ConcurrentNode[] children;
+        private final HashMap<String, ConcurrentNode> index;
+
+        private State(LinkedHashMap<String, Object> data, ConcurrentNode[] children) {
+            this(data, children, indexOf(children));
+        }
+
+        private State(LinkedHashMap<String, Object> data, ConcurrentNode[] children, HashMap<String, ConcurrentNode> index) {
+            this.data = data;
+            this.children = children;
+            this.index = index;
+        }
+
+        private static HashMap<String, ConcurrentNode> indexOf(ConcurrentNode[] children) {
+            HashMap<String, ConcurrentNode> index = new HashMap<>();
+            for (ConcurrentNode child : children) {
+                if (child.nodeKey != null)
+                    index.putIfAbsent(child.nodeKey.toLowerCase(Locale.ROOT), child);
+            }
+            return index;
+        }
+    }
+
+    //region ConcurrentNode
+    public static final class ConcurrentNode {
+
+        private final String nodeKey;
+        private final String nodeKeyPath;
+        private volatile State state = new State(new LinkedHashMap<>(), new ConcurrentNode[0], new HashMap<>());
+
+        private ConcurrentNode(String nodeKey, String nodeKeyPath) {
+            this.nodeKey = nodeKey;
+            this.nodeKeyPath = nodeKeyPath;
+        }
+
+        private String childPath(String childKey) {
+            return nodeKeyPath == null ? childKey : nodeKeyPath + "." + childKey;
+        }
+
+        /**
+         * Retrieves data identified by the given key and then returned as the given type
+         *
+         * @param key   a {@link String} as data key
+         * @param clazz a {@link Class<T>} to cast the result to
+         * @return the to {@link T} casted value
+         */
+        public <T> T get(String key, Class<T> clazz) {
+            return Document.cast(state.data.get(key), clazz);
+        }
+
+        public int getInt(String key, int defaultValue) {
+            Number value = (Number) state.data.get(key);
+            return value == null ? defaultValue : value.intValue();
+        }
+
+        public long getLong(String key, long defaultValue) {
+            Number value = (Number) state.data.get(key);
+            return value == null ? defaultValue : value.longValue();
+        }
+
+        public double getDouble(String key, double defaultValue) {
+            Number value = (Number) state.data.get(key);
+            return value == null ? defaultValue : value.doubleValue();
+        }
+
+        public boolean getBoolean(String key, boolean defaultValue) {
+            Boolean value = (Boolean) state.data.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        /**
+         * Insert a value into the data layer of this node
+         *
+         * @param key   a {@link String} as data key
+         * @param value {@link T} the value to be inserted
+         */
+        public synchronized <T> void put(String key, T value) {
+            LinkedHashMap<String, Object> data = new LinkedHashMap<>(state.data);
+            data.put(key, value);
+            publish(data);
+        }
+
+        /**
+         * @return the present value or null if the given value was inserted
+         */
+        public synchronized Object putIfAbsent(String key, Object value) {
+            Object present = state.data.get(key);
+            if (present == null)
+                put(key, value);
+            return present;
+        }
+
+        /**
+         * Atomically computes a new value, the function runs while this node is locked and must not write other nodes
+         *
+         * @see Map#compute(Object, BiFunction)
+         */
+        public synchronized Object compute(String key, BiFunction<? super String, Object, Object> function) {
+            LinkedHashMap<String, Object> data = new LinkedHashMap<>(state.data);
+            Object value = data.compute(key, function);
+            publish(data);
+            return value;
+        }
+
+        /**
+         * Atomically computes a value if the key is absent, the function runs while this node is locked
+         *
+         * @see Map#computeIfAbsent(Object, Function)
+         */
+        public synchronized Object computeIfAbsent(String key, Function<? super String, Object> function) {
+            Object present = state.data.get(key);
+            if (present != null)
+                return present;
+            Object value = function.apply(key);
+            if (value != null)
+                put(key, value);
+            return value;
+        }
+
+        /**
+         * Atomically inserts or combines a value, the function runs while this node is locked and must not write other nodes
+         *
+         * @see Map#merge(Object, Object, BiFunction)
+         */
+        public synchronized Object merge(String key, Object value, BiFunction<Object, Object, Object> function) {
+            LinkedHashMap<String, Object> data = new LinkedHashMap<>(state.data);
+            Object merged = data.merge(key, value, function);
+            publish(data);
+            return merged;
+        }
+
+        /**
+         * Delete an entry from the data of this node
+         *
+         * @param key a {@link String} to identify the entry
+         */
+        public synchronized void remove(String key) {
+            if (!state.data.containsKey(key))
+                return;
+            LinkedHashMap<String, Object> data = new LinkedHashMap<>(state.data);
+            data.remove(key);
+            publish(data);
+        }
+
+        private void publish(LinkedHashMap<String, Object> data) {
+            State current = state;
+            state = new State(data, current.children, current.index);
+        }
+
+        /**
+         * @param nodeKey a {@link String} the node is identified by
+         * @return true if the node was found as child node
+         */
+        public boolean existsChildNode(String nodeKey) {
+            return getChildNode(nodeKey) != null;
+        }
+
+        /**
+         * @param nodeKey a {@link String} the node is identified by
+         * @return a {@link ConcurrentNode} identified by the given nodeKey
+         */
+        public ConcurrentNode getChildNode(String nodeKey) {
+            return nodeKey == null ? null : state.index.get(nodeKey.toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * Atomically creates a child node unless there is one with the given key
+         *
+         * @param nodeKey a {@link String} to identify the node
+         * @return the created or existing {@link ConcurrentNode}
+         */
+        public synchronized ConcurrentNode createChildNode(String nodeKey) {
+            ConcurrentNode existing = getChildNode(nodeKey);
+            if (existing != null)
+                return existing;
+            State current = state;
+            ConcurrentNode child = new ConcurrentNode(nodeKey, childPath(nodeKey));
+            ConcurrentNode[] children = Arrays.copyOf(current.children, current.children.length + 1);
+            children[current.children.length] = child;
+            HashMap<String, ConcurrentNode> index = new HashMap<>(current.index);
+            index.put(nodeKey.toLowerCase(Locale.ROOT), child);
+            state = new State(current.data, children, index);
+            return child;
+        }
+
+        /**
+         * Delete every child node with the given key
+         *
+         * @param nodeKey a {@link String} to identify the node
+         */
+        public synchronized void removeChildNode(String nodeKey) {
+            State current = state;
+            List<ConcurrentNode> children = new ArrayList<>(current.children.length);
+            for (ConcurrentNode child : current.children) {
+                if (child.nodeKey == null || !child.nodeKey.equalsIgnoreCase(nodeKey))
+                    children.add(child);
+            }
+            if (children.size() != current.children.length)
+                state = new State(current.data, children.toArray(new ConcurrentNode[0]));
+        }
+
+        /**
+         * @return a read only view of the child nodes at the time of the call
+         */
+        public List<ConcurrentNode> getChildNodes() {
+            return Collections.unmodifiableList(Arrays.asList(state.children));
+        }
+
+        /**
+         * @return a read only view of the data at the time of the call
+         */
+        public Map<String, Object> getNodeData() {
+            return Collections.unmodifiableMap(state.data);
+        }
+
+        public String getNodeKeyPath() {
+            return nodeKeyPath;
+        }
+
+        public String getNodeKey() {
+            return nodeKey;
+        }
+    }
+    //endregion
+
+}
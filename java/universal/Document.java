@@ -9,12 +9,11 @@ import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
-import java.io.BufferedWriter;
-import java.io.IOException;
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * This is a simple way saving all kind of data inside a node based structure.
@@ -29,8 +28,13 @@ public class Document {
 
     private LinkedHashMap<String, Object> data;
     private LinkedList<DocumentNode> nodes;
+    private transient NodeIndex rootIndex;
+    private transient Versions versions = new Versions();
+    private transient boolean dataShared;
+    private transient boolean nodesShared;
     public static transient Gson GSON = new GsonBuilder().serializeNulls().setPrettyPrinting().disableHtmlEscaping().enableComplexMapKeySerialization()
             .create();
+    public static transient Gson COMPACT_GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().enableComplexMapKeySerialization().create();
     //region Document
 
     /**
@@ -58,9 +62,31 @@ public class Document {
     public Document(LinkedHashMap<String, Object> data, LinkedList<DocumentNode> nodes) {
         this.data = data;
         this.nodes = nodes;
+        track(nodes, versions);
         initDocument();
     }
 
+    /**
+     * Creates a {@link Document} holding exactly the given data and nodes, the way it is created when parsed from JSON
+     */
+    static Document restore(LinkedHashMap<String, Object> data, LinkedList<DocumentNode> nodes) {
+        Document document = new Document();
+        document.data = data;
+        document.nodes = nodes;
+        track(nodes, document.versions);
+        return document;
+    }
+
+    private static void track(List<DocumentNode> nodes, Versions versions) {
+        if (nodes == null)
+            return;
+        for (DocumentNode node : nodes) {
+            node.versions = versions;
+            node.generation = versions.generation;
+            track(node.childNodes, versions);
+        }
+    }
+
     private void initDocument() {
         DocumentNode node = createRootNode("document");
         node.put("version", "0.0.1");
@@ -75,12 +101,30 @@ public class Document {
         return get(key, String.class);
     }
 
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return a {@link String} containing the stored data found at the given path
+     */
+    public String getString(DocumentPath path) {
+        return get(path, String.class);
+    }
+
     /**
      * @param key root data key or nodeKey separated by '.'
      * @return a {@link Double} containing the stored data found at the given key
      */
     public Double getDouble(String key) {
-        return get(key, Double.class);
+        Number value = get(key, Number.class);
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return a {@link Double} containing the stored data found at the given path
+     */
+    public Double getDouble(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.doubleValue();
     }
 
     /**
@@ -88,7 +132,17 @@ public class Document {
      * @return a {@link Integer} containing the stored data found at the given key
      */
     public Integer getInteger(String key) {
-        return get(key, Double.class).intValue();
+        Number value = get(key, Number.class);
+        return value == null ? null : value.intValue();
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return a {@link Integer} containing the stored data found at the given path
+     */
+    public Integer getInteger(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.intValue();
     }
 
     /**
@@ -96,7 +150,17 @@ public class Document {
      * @return a {@link Long} containing the stored data found at the given key
      */
     public Long getLong(String key) {
-        return get(key, Double.class).longValue();
+        Number value = get(key, Number.class);
+        return value == null ? null : value.longValue();
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return a {@link Long} containing the stored data found at the given path
+     */
+    public Long getLong(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.longValue();
     }
 
     /**
@@ -104,7 +168,17 @@ public class Document {
      * @return a {@link Float} containing the stored data found at the given key
      */
     public Float getFloat(String key) {
-        return get(key, Double.class).floatValue();
+        Number value = get(key, Number.class);
+        return value == null ? null : value.floatValue();
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return a {@link Float} containing the stored data found at the given path
+     */
+    public Float getFloat(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.floatValue();
     }
 
     /**
@@ -115,8 +189,167 @@ public class Document {
         return get(key, Boolean.class);
     }
 
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return a {@link Boolean} containing the stored data found at the given path
+     */
+    public Boolean getBoolean(DocumentPath path) {
+        return get(path, Boolean.class);
+    }
+
+    /**
+     * @param key          root data key or nodeKey separated by '.'
+     * @param defaultValue returned if there is no value at the given key
+     * @return the number found at the given key as int
+     */
+    public int getInt(String key, int defaultValue) {
+        return getInt(DocumentPath.of(key), defaultValue);
+    }
+
+    /**
+     * @param path         compiled root data key or nodeKey
+     * @param defaultValue returned if there is no value at the given path
+     * @return the number found at the given path as int
+     */
+    public int getInt(DocumentPath path, int defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.intValue();
+    }
+
+    /**
+     * @param key          root data key or nodeKey separated by '.'
+     * @param defaultValue returned if there is no value at the given key
+     * @return the number found at the given key as long
+     */
+    public long getLong(String key, long defaultValue) {
+        return getLong(DocumentPath.of(key), defaultValue);
+    }
+
+    /**
+     * @param path         compiled root data key or nodeKey
+     * @param defaultValue returned if there is no value at the given path
+     * @return the number found at the given path as long
+     */
+    public long getLong(DocumentPath path, long defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.longValue();
+    }
+
+    /**
+     * @param key          root data key or nodeKey separated by '.'
+     * @param defaultValue returned if there is no value at the given key
+     * @return the number found at the given key as double
+     */
+    public double getDouble(String key, double defaultValue) {
+        return getDouble(DocumentPath.of(key), defaultValue);
+    }
+
+    /**
+     * @param path         compiled root data key or nodeKey
+     * @param defaultValue returned if there is no value at the given path
+     * @return the number found at the given path as double
+     */
+    public double getDouble(DocumentPath path, double defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.doubleValue();
+    }
+
+    /**
+     * @param key          root data key or nodeKey separated by '.'
+     * @param defaultValue returned if there is no value at the given key
+     * @return the boolean found at the given key
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return getBoolean(DocumentPath.of(key), defaultValue);
+    }
+
+    /**
+     * @param path         compiled root data key or nodeKey
+     * @param defaultValue returned if there is no value at the given path
+     * @return the boolean found at the given path
+     */
+    public boolean getBoolean(DocumentPath path, boolean defaultValue) {
+        Boolean value = get(path, Boolean.class);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * A list of numbers, e.g. read from JSON, is converted once and replaced by the array
+     *
+     * @param key root data key or nodeKey separated by '.'
+     * @return the int array found at the given key
+     */
+    public int[] getIntArray(String key) {
+        return getIntArray(DocumentPath.of(key));
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return the int array found at the given path, see {@link #getIntArray(String)}
+     */
+    public int[] getIntArray(DocumentPath path) {
+        Object value = get(path, Object.class);
+        if (value == null || value instanceof int[])
+            return (int[]) value;
+        int[] array = toIntArray(value);
+        replace(path, array);
+        return array;
+    }
+
+    /**
+     * A list of numbers, e.g. read from JSON, is converted once and replaced by the array
+     *
+     * @param key root data key or nodeKey separated by '.'
+     * @return the long array found at the given key
+     */
+    public long[] getLongArray(String key) {
+        return getLongArray(DocumentPath.of(key));
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return the long array found at the given path, see {@link #getLongArray(String)}
+     */
+    public long[] getLongArray(DocumentPath path) {
+        Object value = get(path, Object.class);
+        if (value == null || value instanceof long[])
+            return (long[]) value;
+        long[] array = toLongArray(value);
+        replace(path, array);
+        return array;
+    }
+
+    /**
+     * A list of numbers, e.g. read from JSON, is converted once and replaced by the array
+     *
+     * @param key root data key or nodeKey separated by '.'
+     * @return the double array found at the given key
+     */
+    public double[] getDoubleArray(String key) {
+        return getDoubleArray(DocumentPath.of(key));
+    }
+
+    /**
+     * @param path compiled root data key or nodeKey
+     * @return the double array found at the given path, see {@link #getDoubleArray(String)}
+     */
+    public double[] getDoubleArray(DocumentPath path) {
+        Object value = get(path, Object.class);
+        if (value == null || value instanceof double[])
+            return (double[]) value;
+        double[] array = toDoubleArray(value);
+        replace(path, array);
+        return array;
+    }
+
     public UUID getUUID(String key) {
-        return UUID.fromString(get(key, String.class));
+        String value = get(key, String.class);
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    public UUID getUUID(DocumentPath path) {
+        String value = get(path, String.class);
+        return value == null ? null : UUID.fromString(value);
     }
 
     /**
@@ -128,6 +361,15 @@ public class Document {
         return get(key, clazz);
     }
 
+    /**
+     * @param path  compiled root data key or nodeKey
+     * @param clazz the {@link Class<T>} the data is casted to
+     * @return a {@link Object} containing the stored data found at the given path
+     */
+    public <T> T getObject(DocumentPath path, Class<T> clazz) {
+        return get(path, clazz);
+    }
+
     /**
      * @param key root data key or nodeKey separated by '.'
      * @return a {@link Object} containing the stored data found at the given key
@@ -140,10 +382,24 @@ public class Document {
      * @param key   root data key or nodeKey separated by '.'
      * @param array the data type that represents the {@link ArrayList<T>}
      * @param type  the data type the {@link ArrayList} is carrying
-     * @return a {@link E} extended of an {@link ArrayList<T>} containing the stored data found at the given key
+     * @return a {@link E} extended of an {@link ArrayList<T>} containing the stored data found at the given key, a copy
+     * if numbers had to be converted to the type
      */
+    @SuppressWarnings("unchecked")
     public <E extends ArrayList<T>, T> E getArrayList(String key, Class<E> array, Class<T> type) {
-        return (E) get(key, array);
+        E list = get(key, array);
+        if (list == null || !Number.class.isAssignableFrom(type))
+            return list;
+        E converted = null;
+        for (int i = 0; i < list.size(); i++) {
+            Object element = list.get(i);
+            if (element instanceof Number && !type.isInstance(element)) {
+                if (converted == null)
+                    converted = (E) list.clone();
+                ((List<Object>) converted).set(i, cast(element, type));
+            }
+        }
+        return converted == null ? list : converted;
     }
 
     /**
@@ -172,15 +428,78 @@ public class Document {
     }
 
     private <T> T get(String nodeKey, Class<T> clazz) {
-        if (data.containsKey(nodeKey)) {
-            return clazz.cast(data.get(nodeKey));
-        } else {
-            if (nodeKey.contains(".")) {
-                return getNode(trimNodeKey(nodeKey)).get(trimParentKey(nodeKey), clazz);
-            } else {
-                return getRootNode(trimNodeKey(nodeKey)).get(trimParentKey(nodeKey), clazz);
-            }
+        return get(DocumentPath.of(nodeKey), clazz);
+    }
+
+    private <T> T get(DocumentPath path, Class<T> clazz) {
+        Object value = data.get(path.toString());
+        if (value != null || !path.isNested())
+            return cast(value, clazz);
+        DocumentNode node = resolve(path, path.size() - 1);
+        return node == null ? null : node.get(path.getKey(), clazz);
+    }
+
+    /**
+     * Replaces a value {@link #get(DocumentPath, Class)} found without changing its position
+     */
+    private void replace(DocumentPath path, Object value) {
+        if (data.containsKey(path.toString()))
+            editData().put(path.toString(), value);
+        else
+            resolve(path, path.size() - 1).put(path.getKey(), value);
+    }
+
+    static int[] toIntArray(Object value) {
+        List<?> list = (List<?>) value;
+        int[] array = new int[list.size()];
+        int i = 0;
+        for (Object element : list) {
+            array[i++] = ((Number) element).intValue();
+        }
+        return array;
+    }
+
+    static long[] toLongArray(Object value) {
+        List<?> list = (List<?>) value;
+        long[] array = new long[list.size()];
+        int i = 0;
+        for (Object element : list) {
+            array[i++] = ((Number) element).longValue();
+        }
+        return array;
+    }
+
+    static double[] toDoubleArray(Object value) {
+        List<?> list = (List<?>) value;
+        double[] array = new double[list.size()];
+        int i = 0;
+        for (Object element : list) {
+            array[i++] = ((Number) element).doubleValue();
         }
+        return array;
+    }
+
+    /**
+     * Casts the value to the class, a {@link Number} is converted if another {@link Number} class is asked for, as JSON
+     * numbers are read as the smallest of {@link Integer}, {@link Long} and {@link Double} they fit into
+     */
+    static <T> T cast(Object value, Class<T> clazz) {
+        if (!(value instanceof Number) || clazz.isInstance(value))
+            return clazz.cast(value);
+        Number number = (Number) value;
+        if (clazz == Double.class)
+            return clazz.cast(number.doubleValue());
+        if (clazz == Long.class)
+            return clazz.cast(number.longValue());
+        if (clazz == Integer.class)
+            return clazz.cast(number.intValue());
+        if (clazz == Float.class)
+            return clazz.cast(number.floatValue());
+        if (clazz == Short.class)
+            return clazz.cast(number.shortValue());
+        if (clazz == Byte.class)
+            return clazz.cast(number.byteValue());
+        return clazz.cast(value);
     }
 
     /**
@@ -198,10 +517,20 @@ public class Document {
      * @param value {@link T} the value to be inserted
      */
     public <T> void put(String key, T value) {
-        if (key.contains(".")) {
-            getNode(trimNodeKey(key)).put(trimParentKey(key), value);
+        put(DocumentPath.of(key), value);
+    }
+
+    /**
+     * Insert a value into the root data layer or any node data layer
+     *
+     * @param path  compiled root data key or nodeKey
+     * @param value {@link T} the value to be inserted
+     */
+    public <T> void put(DocumentPath path, T value) {
+        if (path.isNested()) {
+            resolve(path, path.size() - 1).put(path.getKey(), value);
         } else {
-            data.put(key, value);
+            editData().put(path.getKey(), value);
         }
     }
 
@@ -211,10 +540,21 @@ public class Document {
      * @param nodeKey root data key or nodeKey separated by '.'
      */
     public void remove(String nodeKey) {
-        if (nodeKey.contains(".")) {
-            getNode(trimNodeKey(nodeKey)).remove(nodeKey);
+        remove(DocumentPath.of(nodeKey));
+    }
+
+    /**
+     * Delete any node or data identified by the given path
+     *
+     * @param path compiled root data key or nodeKey
+     */
+    public void remove(DocumentPath path) {
+        if (path.isNested()) {
+            DocumentNode parent = resolve(path, path.size() - 1);
+            if (parent != null)
+                parent.remove(path.toString());
         } else {
-            data.remove(nodeKey);
+            editData().remove(path.getKey());
         }
     }
 
@@ -245,7 +585,7 @@ public class Document {
      * @return true if the root nodes contain the given nodeKey
      */
     public boolean existsRootNode(String nodeKey) {
-        return nodes.stream().anyMatch(documentNode -> documentNode.getNodeKeyPath().equalsIgnoreCase(nodeKey));
+        return rootIndex().get(nodes, nodeKey) != null;
     }
 
     /**
@@ -253,7 +593,8 @@ public class Document {
      * @return {@link DocumentNode} identified by the given root nodeKey
      */
     public DocumentNode getRootNode(String nodeKey) {
-        return nodes.stream().filter(documentNode -> documentNode.getNodeKey().equalsIgnoreCase(nodeKey)).findFirst().orElse(null);
+        DocumentNode node = rootIndex().get(nodes, nodeKey);
+        return node == null ? null : node.tracked(versions);
     }
 
     /**
@@ -266,7 +607,10 @@ public class Document {
         if (!existsRootNode(nodeKey)) {
             DocumentNode node = new DocumentNode(nodeKey);
             node.setNodeKeyPath(nodeKey);
-            nodes.add(node);
+            node.versions = versions;
+            node.generation = versions.generation;
+            editNodes().add(node);
+            rootIndex().added(nodes, node);
             return node;
         }
         return null;
@@ -281,21 +625,67 @@ public class Document {
      * @return the created {@link DocumentNode} after adding it to the node tree
      */
     public DocumentNode getNode(String nodeKey) {
-        String[] nodeKeys = nodeKey.split("\\.");
-        if (nodeKey.contains(".")) {
-            AtomicReference<DocumentNode> nodeRef = new AtomicReference<>(getRootNode(nodeKeys[0]));
-            nodeRef.get().setNodeKeyPath(nodeKeys[0]);
-            Stream.of(nodeKeys).skip(1).forEach(key -> {
-                if (nodeRef.get().existsChildNode(key)) {
-                    String path = nodeRef.get().getNodeKeyPath() + "." + key;
-                    nodeRef.set(nodeRef.get().getChildNode(key));
-                    nodeRef.get().setNodeKeyPath(path);
-                }
-            });
-            return nodeRef.get().getNodeKeyPath().equalsIgnoreCase(nodeKey) ? nodeRef.get() : null;
-        } else {
-            return getRootNode(nodeKey);
+        return getNode(DocumentPath.of(nodeKey));
+    }
+
+    /**
+     * Retrieve the node identified by the given path
+     *
+     * @param path compiled nodeKey
+     * @return the {@link DocumentNode} or null if there is no node at the given path
+     */
+    public DocumentNode getNode(DocumentPath path) {
+        return resolve(path, path.size());
+    }
+
+    /**
+     * Walks the first segments of the given path through the node indexes without creating any objects
+     *
+     * @return the node at the given depth or null if a node on the way does not exist
+     */
+    private DocumentNode resolve(DocumentPath path, int depth) {
+        DocumentNode node = rootIndex().getLowerCase(nodes, path.getLowerCaseSegment(0));
+        for (int i = 1; node != null && i < depth; i++) {
+            node = node.tracked(versions).childIndex().getLowerCase(node.childNodes, path.getLowerCaseSegment(i));
         }
+        if (node == null)
+            return null;
+        if (node.getNodeKeyPath() == null)
+            node.setNodeKeyPath(path.prefix(depth));
+        return node.tracked(versions);
+    }
+
+    private LinkedHashMap<String, Object> editData() {
+        if (dataShared) {
+            data = new LinkedHashMap<>(data);
+            dataShared = false;
+        }
+        return data;
+    }
+
+    private LinkedList<DocumentNode> editNodes() {
+        if (nodesShared) {
+            nodes = new LinkedList<>(nodes);
+            nodesShared = false;
+        }
+        return nodes;
+    }
+
+    /**
+     * Takes an immutable snapshot of this document in constant time, e.g. to save it on another thread while this
+     * document keeps changing. Nodes taken from this document before stay writable. See {@link DocumentSnapshot}
+     *
+     * @return a {@link DocumentSnapshot} of the current data and node tree
+     */
+    public DocumentSnapshot snapshot() {
+        DocumentSnapshot previous = versions.latest();
+        DocumentSnapshot snapshot = new DocumentSnapshot(++versions.generation, data, nodes);
+        if (previous != null)
+            previous.setNext(snapshot);
+        versions.latest = new WeakReference<>(snapshot);
+        dataShared = true;
+        nodesShared = true;
+        return snapshot;
     }
 
     /**
@@ -306,20 +696,30 @@ public class Document {
      * @return the created {@link DocumentNode} after adding it to the node tree
      */
     public DocumentNode createNode(String parentKey) {
-        if (parentKey.contains(".")) {
-            String[] nodeKeys = parentKey.split("\\.");
-            createRootNode(nodeKeys[0]);
-            AtomicReference<DocumentNode> nodeRef = new AtomicReference<>(getRootNode(nodeKeys[0]));
-            nodeRef.get().setNodeKeyPath(nodeKeys[0]);
-            Stream.of(nodeKeys).skip(1).forEach(key -> {
-                String path = nodeRef.get().getNodeKeyPath() + "." + key;
-                nodeRef.set(nodeRef.get().createChildNode(key));
-                nodeRef.get().setNodeKeyPath(path);
-            });
-            return nodeRef.get();
-        } else {
-            return createRootNode(parentKey);
+        return createNode(DocumentPath.of(parentKey));
+    }
+
+    /**
+     * Create a new {@link DocumentNode} anywhere in the node tree, see {@link #createNode(String)}
+     * Existing nodes on the path are reused, so the node at the path is returned if it already exists
+     *
+     * @param path compiled nodeKey
+     * @return the created or existing {@link DocumentNode}
+     */
+    public DocumentNode createNode(DocumentPath path) {
+        if (!path.isNested())
+            return createRootNode(path.getKey());
+        createRootNode(path.getSegment(0));
+        DocumentNode node = resolve(path, 1);
+        for (int i = 1; i < path.size(); i++) {
+            DocumentNode child = node.childIndex().getLowerCase(node.childNodes, path.getLowerCaseSegment(i));
+            if (child == null) {
+                child = node.createChildNode(path.getSegment(i));
+                child.setNodeKeyPath(path.prefix(i + 1));
+            }
+            node = child.tracked(versions);
         }
+        return node;
     }
 
     /**
@@ -328,20 +728,73 @@ public class Document {
      * @return a {@link String} containing the root data layer and the node tree
      */
     public String toJson() {
-        return GSON.toJson(this, new TypeToken<Document>() {
-        }.getType());
+        StringWriter writer = new StringWriter();
+        try {
+            DocumentJson.write(data, nodes, GSON.newJsonWriter(writer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 
     /**
      * Writes this {@link Document} object to a file using the given writer
      *
-     * @param writer a {@link Appendable} writer to write the formatted JSON to
+     * @param writer a {@link Writer} to stream the formatted JSON to
      * @throws IOException
      */
-    public void writeJson(BufferedWriter writer) throws IOException {
-        GSON.toJson(this, new TypeToken<Document>() {
-        }.getType(), writer);
-        writer.flush();
+    public void writeJson(Writer writer) throws IOException {
+        DocumentJson.write(data, nodes, GSON.newJsonWriter(writer));
+    }
+
+    /**
+     * Serializes this {@link Document} object into JSON format without any whitespace
+     *
+     * @return a {@link String} containing the root data layer and the node tree
+     */
+    public String toCompactJson() {
+        StringWriter writer = new StringWriter();
+        try {
+            DocumentJson.write(data, nodes, COMPACT_GSON.newJsonWriter(writer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes this {@link Document} object to a file using the given writer without any whitespace
+     *
+     * @param writer a {@link Writer} to stream the JSON to
+     * @throws IOException
+     */
+    public void writeCompactJson(Writer writer) throws IOException {
+        DocumentJson.write(data, nodes, COMPACT_GSON.newJsonWriter(writer));
+    }
+
+    /**
+     * Serializes this {@link Document} object into the binary format of {@link DocumentCodec}
+     *
+     * @return a byte array containing the root data layer and the node tree
+     */
+    public byte[] toBinary() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            DocumentCodec.write(data, nodes, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes this {@link Document} object in the binary format of {@link DocumentCodec}
+     *
+     * @param out a {@link OutputStream}, preferably buffered, it is flushed but not closed
+     * @throws IOException
+     */
+    public void writeBinary(OutputStream out) throws IOException {
+        DocumentCodec.write(data, nodes, out);
     }
 
     /**
@@ -351,8 +804,75 @@ public class Document {
      * @return a {@link Document} containing the data given in the JSON {@link String}
      */
     public static Document fromJson(String json) {
-        return GSON.fromJson(json, new TypeToken<Document>() {
-        }.getType());
+        try {
+            return DocumentJson.read(GSON.newJsonReader(new StringReader(json)));
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Streams a JSON formatted {@link Document} from the given reader
+     *
+     * @param reader   a {@link Reader} containing the JSON, it is not closed
+     * @param subtrees node paths to materialize, nodes outside of them are skipped, see {@link DocumentJson}
+     * @return a {@link Document} containing the data read
+     * @throws IOException
+     */
+    public static Document readJson(Reader reader, DocumentPath... subtrees) throws IOException {
+        try {
+            return DocumentJson.read(GSON.newJsonReader(reader), subtrees);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Streams a UTF-8 encoded JSON formatted {@link Document} from the given stream
+     *
+     * @param in       a {@link InputStream} containing the JSON, it is not closed
+     * @param subtrees node paths to materialize, nodes outside of them are skipped, see {@link DocumentJson}
+     * @return a {@link Document} containing the data read
+     * @throws IOException
+     */
+    public static Document readJson(InputStream in, DocumentPath... subtrees) throws IOException {
+        return readJson(new InputStreamReader(in, StandardCharsets.UTF_8), subtrees);
+    }
+
+    /**
+     * Parses a document written by {@link #toBinary()}
+     *
+     * @param bytes the binary document
+     * @return a {@link Document} containing the data of the binary document
+     * @throws IOException if the bytes do not contain a binary document
+     */
+    public static Document fromBinary(byte[] bytes) throws IOException {
+        return DocumentCodec.read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Reads a document written by {@link #writeBinary(OutputStream)}
+     *
+     * @param in a {@link InputStream}, preferably buffered, it is not closed
+     * @return a {@link Document} containing the data of the binary document
+     * @throws IOException if the stream does not contain a binary document
+     */
+    public static Document readBinary(InputStream in) throws IOException {
+        return DocumentCodec.read(in);
+    }
+
+    public LinkedHashMap<String, Object> getData() {
+        return editData();
+    }
+
+    public LinkedList<DocumentNode> getNodes() {
+        return editNodes();
+    }
+
+    private NodeIndex rootIndex() {
+        if (rootIndex == null)
+            rootIndex = new NodeIndex();
+        return rootIndex;
     }
     //endregion
 
@@ -361,9 +881,13 @@ public class Document {
 
         private String nodeKeyPath;
 
-        private LinkedHashMap<String, Object> nodeData = new LinkedHashMap<>();
-        private LinkedList<DocumentNode> childNodes = new LinkedList<>();
+        private volatile LinkedHashMap<String, Object> nodeData = new LinkedHashMap<>();
+        private volatile LinkedList<DocumentNode> childNodes = new LinkedList<>();
         private String nodeKey;
+        private transient NodeIndex childIndex;
+        private transient Versions versions;
+        private transient long generation;
+        private transient DocumentSnapshot snapshot;
 
         /**
          * @param nodeKey  a {@link String} the node is identified by
@@ -391,9 +915,25 @@ public class Document {
          * @return the created {@link DocumentNode} after adding it to the node tree
          */
         public DocumentNode createChildNode(String nodeKey, Map.Entry<String, Object>... nodeData) {
+            DocumentNode node = createChildNode(nodeKey);
+            for (Map.Entry<String, Object> entry : nodeData) {
+                node.getNodeData().put(entry.getKey(), entry.getValue());
+            }
+            return node;
+        }
+
+        /**
+         * Creates an empty child node without the generic varargs array of {@link #createChildNode(String, Map.Entry[])}
+         */
+        private DocumentNode createChildNode(String nodeKey) {
+            prepareWrite();
             DocumentNode node = new DocumentNode(nodeKey, Maps.newLinkedHashMap());
-            node.getNodeData().entrySet().addAll(Arrays.asList(nodeData));
+            if (versions != null) {
+                node.versions = versions;
+                node.generation = versions.generation;
+            }
             childNodes.add(node);
+            childIndex().added(childNodes, node);
             return node;
         }
 
@@ -403,8 +943,10 @@ public class Document {
          * @param key a {@link String} to identify the the entry/node
          */
         public void remove(String key) {
+            prepareWrite();
             if (key.contains(".")) {
-                childNodes.removeIf(documentNode -> documentNode.getNodeKeyPath().equalsIgnoreCase(key));
+                if (childNodes.removeIf(documentNode -> key.equalsIgnoreCase(documentNode.getNodeKeyPath())))
+                    childIndex().invalidate();
             } else {
                 nodeData.remove(key);
             }
@@ -415,7 +957,9 @@ public class Document {
          * @return true if the node was found as child node
          */
         public boolean existsChildNode(String nodeKey) {
-            return childNodes.stream().anyMatch(documentNode -> documentNode.getNodeKey().equalsIgnoreCase(nodeKey));
+            if (snapshot != null)
+                return find(childNodes, nodeKey) != null;
+            return childIndex().get(childNodes, nodeKey) != null;
         }
 
         /**
@@ -423,7 +967,10 @@ public class Document {
          * @return a {@link DocumentNode} identified by the given nodeKey
          */
         public DocumentNode getChildNode(String nodeKey) {
-            return childNodes.stream().filter(documentNode -> documentNode.getNodeKey().equalsIgnoreCase(nodeKey)).findFirst().orElse(null);
+            if (snapshot != null)
+                return snapshot.view(find(childNodes, nodeKey));
+            DocumentNode node = childIndex().get(childNodes, nodeKey);
+            return node == null || versions == null ? node : node.tracked(versions);
         }
 
         /**
@@ -433,6 +980,7 @@ public class Document {
          * @param value {@link T} the value to be inserted
          */
         public <T> void put(String key, T value) {
+            prepareWrite();
             nodeData.put(key, value);
         }
 
@@ -444,7 +992,81 @@ public class Document {
          * @return the to {@link T} casted value
          */
         public <T> T get(String key, Class<T> clazz) {
-            return clazz.cast(nodeData.get(key));
+            return cast(nodeData.get(key), clazz);
+        }
+
+        public int getInt(String key, int defaultValue) {
+            Number value = (Number) nodeData.get(key);
+            return value == null ? defaultValue : value.intValue();
+        }
+
+        public long getLong(String key, long defaultValue) {
+            Number value = (Number) nodeData.get(key);
+            return value == null ? defaultValue : value.longValue();
+        }
+
+        public double getDouble(String key, double defaultValue) {
+            Number value = (Number) nodeData.get(key);
+            return value == null ? defaultValue : value.doubleValue();
+        }
+
+        public boolean getBoolean(String key, boolean defaultValue) {
+            Boolean value = (Boolean) nodeData.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        /**
+         * A list of numbers, e.g. read from JSON, is converted once and replaced by the array
+         *
+         * @param key a {@link String} as data key
+         * @return the int array stored at the given key
+         */
+        public int[] getIntArray(String key) {
+            Object value = nodeData.get(key);
+            if (value == null || value instanceof int[])
+                return (int[]) value;
+            int[] array = toIntArray(value);
+            if (snapshot == null) {
+                prepareWrite();
+                nodeData.put(key, array);
+            }
+            return array;
+        }
+
+        /**
+         * A list of numbers, e.g. read from JSON, is converted once and replaced by the array
+         *
+         * @param key a {@link String} as data key
+         * @return the long array stored at the given key
+         */
+        public long[] getLongArray(String key) {
+            Object value = nodeData.get(key);
+            if (value == null || value instanceof long[])
+                return (long[]) value;
+            long[] array = toLongArray(value);
+            if (snapshot == null) {
+                prepareWrite();
+                nodeData.put(key, array);
+            }
+            return array;
+        }
+
+        /**
+         * A list of numbers, e.g. read from JSON, is converted once and replaced by the array
+         *
+         * @param key a {@link String} as data key
+         * @return the double array stored at the given key
+         */
+        public double[] getDoubleArray(String key) {
+            Object value = nodeData.get(key);
+            if (value == null || value instanceof double[])
+                return (double[]) value;
+            double[] array = toDoubleArray(value);
+            if (snapshot == null) {
+                prepareWrite();
+                nodeData.put(key, array);
+            }
+            return array;
         }
 
         public String getNodeKeyPath() {
@@ -455,13 +1077,173 @@ public class Document {
             this.nodeKeyPath = nodeKeyPath;
         }
 
+        /**
+         * @return the data of this node, a copy of it for a node of a {@link DocumentSnapshot}
+         */
         public LinkedHashMap<String, Object> getNodeData() {
+            if (snapshot != null)
+                return nodeData == null ? null : new LinkedHashMap<>(nodeData);
+            prepareWrite();
             return nodeData;
         }
 
         public String getNodeKey() {
             return nodeKey;
         }
+
+        /**
+         * @return the child nodes of this node, a new list for a node of a {@link DocumentSnapshot}
+         */
+        public LinkedList<DocumentNode> getChildNodes() {
+            if (snapshot != null)
+                return snapshot.views(childNodes);
+            prepareWrite();
+            return childNodes;
+        }
+
+        /**
+         * Reads the data without preparing it for a change, for serializers
+         */
+        LinkedHashMap<String, Object> data() {
+            return nodeData;
+        }
+
+        /**
+         * Reads the child nodes without preparing them for a change, for serializers
+         */
+        List<DocumentNode> children() {
+            return snapshot == null ? childNodes : snapshot.views(childNodes);
+        }
+
+        private NodeIndex childIndex() {
+            if (childIndex == null)
+                childIndex = new NodeIndex();
+            return childIndex;
+        }
+
+        /**
+         * Lets the document track changes of a node it found that was added without it, e.g. by Gson or through
+         * {@link #getChildNodes()}. Its generation is unknown, so its first change is kept for the latest snapshot.
+         */
+        private DocumentNode tracked(Versions versions) {
+            if (this.versions == null) {
+                this.versions = versions;
+                this.generation = -1;
+            }
+            return this;
+        }
+
+        /**
+         * Hands the data and child nodes to the latest snapshot if it was taken after this node last changed and
+         * continues on copies of them, so the snapshot keeps them as they were
+         */
+        private void prepareWrite() {
+            if (snapshot != null)
+                throw new IllegalStateException("The node " + nodeKeyPath + " belongs to a snapshot and can not be changed");
+            DocumentSnapshot latest = versions == null ? null : versions.latest();
+            if (latest == null || generation >= latest.getGeneration())
+                return;
+            DocumentNode frozen = new DocumentNode(nodeKey, nodeData);
+            frozen.childNodes = childNodes;
+            latest.freeze(this, frozen);
+            if (nodeData != null)
+                nodeData = new LinkedHashMap<>(nodeData);
+            if (childNodes != null)
+                childNodes = new LinkedList<>(childNodes);
+            generation = latest.getGeneration();
+        }
+
+        /**
+         * @return a read only node holding the data and child nodes this node had when the given snapshot was taken
+         */
+        DocumentNode at(DocumentSnapshot snapshot) {
+            // read before the frozen state, a change after the read always hands its frozen state to the snapshot first
+            LinkedHashMap<String, Object> data = nodeData;
+            LinkedList<DocumentNode> children = childNodes;
+            DocumentNode frozen = snapshot.frozen(this);
+            DocumentNode view = new DocumentNode(nodeKey, frozen == null ? data : frozen.nodeData);
+            view.childNodes = frozen == null ? children : frozen.childNodes;
+            view.nodeKeyPath = nodeKeyPath;
+            view.snapshot = snapshot;
+            return view;
+        }
+    }
+
+    /**
+     * Linear case insensitive lookup that does not touch the lazily built index of a node shared with other threads
+     */
+    static DocumentNode find(List<DocumentNode> nodes, String nodeKey) {
+        if (nodes == null || nodeKey == null)
+            return null;
+        for (DocumentNode node : nodes) {
+            if (nodeKey.equalsIgnoreCase(node.getNodeKey()))
+                return node;
+        }
+        return null;
+    }
+
+    /**
+     * Counts the snapshots of a {@link Document}, every node remembers the count it last changed at.
+     * A node that changes for the first time after the latest snapshot hands its state to that snapshot,
+     * snapshots that are no longer referenced are left to the garbage collector.
+     */
+    private static final class Versions {
+
+        private long generation;
+        private WeakReference<DocumentSnapshot> latest;
+
+        private DocumentSnapshot latest() {
+            return latest == null ? null : latest.get();
+        }
+    }
+
+    /**
+     * Case insensitive hash index over the keys of a node list, so a node is found without walking its siblings.
+     * The list stays the source of truth: the index is rebuilt lazily whenever the list it was built for is replaced
+     * or changed its size behind the index' back, e.g. after the list was filled by Gson or through {@link DocumentNode#getChildNodes()}.
+     * Like the linear search it replaces, the first node of a key in insertion order wins.
+     */
+    private static class NodeIndex {
+
+        private final HashMap<String, DocumentNode> byKey = new HashMap<>();
+        private List<DocumentNode> indexed;
+        private int indexedSize;
+
+        private DocumentNode get(List<DocumentNode> nodes, String nodeKey) {
+            if (nodeKey == null)
+                return null;
+            return getLowerCase(nodes, nodeKey.toLowerCase(Locale.ROOT));
+        }
+
+        private DocumentNode getLowerCase(List<DocumentNode> nodes, String lowerCaseKey) {
+            if (indexed != nodes || indexedSize != nodes.size())
+                rebuild(nodes);
+            return byKey.get(lowerCaseKey);
+        }
+
+        private void added(List<DocumentNode> nodes, DocumentNode node) {
+            if (indexed != nodes || indexedSize != nodes.size() - 1) {
+                rebuild(nodes);
+                return;
+            }
+            indexedSize++;
+            if (node.getNodeKey() != null)
+                byKey.putIfAbsent(node.getNodeKey().toLowerCase(Locale.ROOT), node);
+        }
+
+        private void invalidate() {
+            indexed = null;
+        }
+
+        private void rebuild(List<DocumentNode> nodes) {
+            byKey.clear();
+            for (DocumentNode node : nodes) {
+                if (node.getNodeKey() != null)
+                    byKey.putIfAbsent(node.getNodeKey().toLowerCase(Locale.ROOT), node);
+            }
+            indexed = nodes;
+            indexedSize = nodes.size();
+        }
     }
     //endregion
 
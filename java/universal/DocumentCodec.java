@@ -0,0 +1,435 @@
+package de.idkwhoami.utils.other;
+
+import com.google.gson.internal.bind.JsonTreeReader;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A compact binary format for {@link Document} trees, usually smaller and a lot faster to parse than their JSON.
+ * <br>
+ * How to use:
+ * <pre>
+ *   byte[] bytes = document.toBinary();
+ *   Document copy = Document.fromBinary(bytes);
+ *
+ *   try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+ *       document.writeBinary(out);
+ *   }
+ *   try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+ *       Document loaded = Document.readBinary(in);
+ *   }
+ * </pre>
+ * <br>
+ * Lengths and counts are written as varints, integers as zig-zag varints and doubles without a fraction as varints as
+ * well. Data keys and node keys are written once, every further occurrence is a reference into a string table built
+ * while writing, so the key names of thousands of similar nodes cost one or two bytes each. Node lists and data maps are
+ * written with their size plus 1 and 0 for null, so null data and nodes read back as null like they do from JSON.
+ * <br>
+ * Every value keeps its type: {@link Integer}, {@link Long}, {@link Double}, {@link Float}, {@link String},
+ * {@link Boolean}, null, lists, arrays and maps. {@code int[]}, {@code long[]} and {@code double[]} are written packed and
+ * read back as primitive arrays, other arrays read back as lists. Any other value is written the way {@link Document#GSON} would write it
+ * and therefore reads back like it would from JSON. A document read from its JSON and written in this format produces
+ * the same JSON again.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public final class DocumentCodec {
+
+    private static final byte[] MAGIC = {'D', 'O', 'C'};
+    private static final int VERSION = 3;
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int INTEGRAL_DOUBLE = 6;
+    private static final int FLOAT = 7;
+    private static final int STRING = 8;
+    private static final int LIST = 9;
+    private static final int MAP = 10;
+    private static final int STRING_KEY_MAP = 11;
+    private static final int INT_ARRAY = 12;
+    private static final int LONG_ARRAY = 13;
+    private static final int DOUBLE_ARRAY = 14;
+
+    /**
+     * Doubles with a greater magnitude are written as 8 bytes, every long up to it is exactly representable as double
+     */
+    private static final double MAX_INTEGRAL_DOUBLE = 1L << 53;
+
+    private DocumentCodec() {
+    }
+
+    /**
+     * @param document the {@link Document} to encode
+     * @param out      the stream to write to, it is neither buffered nor closed by this method
+     */
+    public static void write(Document document, OutputStream out) throws IOException {
+        write(document.getData(), document.getNodes(), out);
+    }
+
+    static void write(Map<String, Object> data, List<Document.DocumentNode> nodes, OutputStream out) throws IOException {
+        Encoder writer = new Encoder(out);
+        writer.out.write(MAGIC);
+        writer.out.write(VERSION);
+        writer.writeStringKeyMap(data);
+        writer.writeNodes(nodes);
+        writer.out.flush();
+    }
+
+    /**
+     * @param in the stream to read from, it is neither buffered nor closed by this method
+     * @return the decoded {@link Document}
+     * @throws IOException if the stream does not contain a binary document or ends early
+     */
+    public static Document read(InputStream in) throws IOException {
+        Decoder reader = new Decoder(in);
+        byte[] magic = new byte[MAGIC.length];
+        reader.in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("The stream does not contain a binary document");
+        int version = reader.in.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported binary document version " + version);
+        reader.version = version;
+        LinkedHashMap<String, Object> data = reader.readStringKeyMap();
+        LinkedList<Document.DocumentNode> nodes = reader.readNodes();
+        return Document.restore(data, nodes);
+    }
+
+    private static class Encoder {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private Encoder(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        private void writeNodes(List<Document.DocumentNode> nodes) throws IOException {
+            if (nodes == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(nodes.size() + 1);
+            for (Document.DocumentNode node : nodes) {
+                writeKey(node.getNodeKey());
+                writeKey(node.getNodeKeyPath());
+                writeStringKeyMap(node.data());
+                writeNodes(node.children());
+            }
+        }
+
+        /**
+         * Writes 0 for null, 1 followed by the string for a new string or the index in the string table plus 2
+         */
+        private void writeKey(String key) throws IOException {
+            if (key == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = strings.get(key);
+            if (index != null) {
+                writeVarInt(index + 2);
+                return;
+            }
+            strings.put(key, strings.size());
+            writeVarInt(1);
+            writeString(key);
+        }
+
+        private void writeStringKeyMap(Map<String, Object> map) throws IOException {
+            if (map == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(map.size() + 1);
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                writeKey(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.write(NULL);
+            } else if (value instanceof Boolean) {
+                out.write((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.write(INT);
+                writeVarLong(zigZag(((Number) value).intValue()));
+            } else if (value instanceof Long) {
+                out.write(LONG);
+                writeVarLong(zigZag((Long) value));
+            } else if (value instanceof Double) {
+                writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                out.write(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof String) {
+                out.write(STRING);
+                writeString((String) value);
+            } else if (value instanceof Character) {
+                out.write(STRING);
+                writeString(value.toString());
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                out.write(LIST);
+                writeVarInt(collection.size());
+                for (Object element : collection) {
+                    writeValue(element);
+                }
+            } else if (value instanceof int[]) {
+                int[] array = (int[]) value;
+                out.write(INT_ARRAY);
+                writeVarInt(array.length);
+                for (int element : array) {
+                    writeVarLong(zigZag(element));
+                }
+            } else if (value instanceof long[]) {
+                long[] array = (long[]) value;
+                out.write(LONG_ARRAY);
+                writeVarInt(array.length);
+                for (long element : array) {
+                    writeVarLong(zigZag(element));
+                }
+            } else if (value instanceof double[]) {
+                double[] array = (double[]) value;
+                out.write(DOUBLE_ARRAY);
+                writeVarInt(array.length);
+                for (double element : array) {
+                    out.writeDouble(element);
+                }
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                out.write(LIST);
+                writeVarInt(length);
+                for (int i = 0; i < length; i++) {
+                    writeValue(Array.get(value, i));
+                }
+            } else if (value instanceof Map) {
+                writeMap((Map<?, ?>) value);
+            } else {
+                writeValue(DocumentJson.readValue(new JsonTreeReader(Document.GSON.toJsonTree(value))));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeMap(Map<?, ?> map) throws IOException {
+            for (Object key : map.keySet()) {
+                if (!(key instanceof String)) {
+                    out.write(MAP);
+                    writeVarInt(map.size());
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        writeValue(entry.getKey());
+                        writeValue(entry.getValue());
+                    }
+                    return;
+                }
+            }
+            out.write(STRING_KEY_MAP);
+            writeStringKeyMap((Map<String, Object>) map);
+        }
+
+        private void writeDouble(double value) throws IOException {
+            long integral = (long) value;
+            if (integral == value && Math.abs(value) <= MAX_INTEGRAL_DOUBLE && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0d)) {
+                out.write(INTEGRAL_DOUBLE);
+                writeVarLong(zigZag(integral));
+            } else {
+                out.write(DOUBLE);
+                out.writeDouble(value);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static class Decoder {
+
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private int version = VERSION;
+
+        private Decoder(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        private LinkedList<Document.DocumentNode> readNodes() throws IOException {
+            int count = readSize();
+            if (count < 0)
+                return null;
+            LinkedList<Document.DocumentNode> nodes = new LinkedList<>();
+            for (int i = 0; i < count; i++) {
+                String nodeKey = readKey();
+                String nodeKeyPath = readKey();
+                Document.DocumentNode node = new Document.DocumentNode(nodeKey, readStringKeyMap());
+                node.setNodeKeyPath(nodeKeyPath);
+                LinkedList<Document.DocumentNode> childNodes = readNodes();
+                if (childNodes != null)
+                    node.getChildNodes().addAll(childNodes);
+                nodes.add(node);
+            }
+            return nodes;
+        }
+
+        private String readKey() throws IOException {
+            int reference = readVarInt();
+            if (reference == 0)
+                return null;
+            if (reference == 1) {
+                String key = readString();
+                strings.add(key);
+                return key;
+            }
+            if (reference - 2 >= strings.size())
+                throw new IOException("Invalid string table reference " + (reference - 2));
+            return strings.get(reference - 2);
+        }
+
+        private LinkedHashMap<String, Object> readStringKeyMap() throws IOException {
+            int size = readSize();
+            if (size < 0)
+                return null;
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>(capacity(size));
+            for (int i = 0; i < size; i++) {
+                String key = readKey();
+                map.put(key, readValue());
+            }
+            return map;
+        }
+
+        private Object readValue() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INT:
+                    return (int) unZigZag(readVarLong());
+                case LONG:
+                    return unZigZag(readVarLong());
+                case DOUBLE:
+                    return in.readDouble();
+                case INTEGRAL_DOUBLE:
+                    return (double) unZigZag(readVarLong());
+                case FLOAT:
+                    return in.readFloat();
+                case STRING:
+                    return readString();
+                case LIST: {
+                    int size = readVarInt();
+                    ArrayList<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                }
+                case MAP: {
+                    int size = readVarInt();
+                    LinkedHashMap<Object, Object> map = new LinkedHashMap<>(capacity(size));
+                    for (int i = 0; i < size; i++) {
+                        Object key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                }
+                case STRING_KEY_MAP:
+                    return readStringKeyMap();
+                case INT_ARRAY: {
+                    int[] array = new int[readVarInt()];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = (int) unZigZag(readVarLong());
+                    }
+                    return array;
+                }
+                case LONG_ARRAY: {
+                    long[] array = new long[readVarInt()];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = unZigZag(readVarLong());
+                    }
+                    return array;
+                }
+                case DOUBLE_ARRAY: {
+                    double[] array = new double[readVarInt()];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = in.readDouble();
+                    }
+                    return array;
+                }
+                default:
+                    throw new IOException("Unknown value tag " + tag);
+            }
+        }
+
+        /**
+         * Reads the size of a node list or data map, -1 for null
+         */
+        private int readSize() throws IOException {
+            int size = readVarInt();
+            return version < 3 ? size : size - 1;
+        }
+
+        private String readString() throws IOException {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() throws IOException {
+            long value = readVarLong();
+            if (value > Integer.MAX_VALUE)
+                throw new IOException("Invalid length " + value);
+            return (int) value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private static long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private static int capacity(int size) {
+            return size < 3 ? size + 1 : (int) (size / 0.75f) + 1;
+        }
+    }
+
+}
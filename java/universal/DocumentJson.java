@@ -0,0 +1,383 @@
+package de.idkwhoami.utils.other;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Streams {@link Document} trees from and to JSON token by token instead of reflecting over the object graph.
+ * <br>
+ * How to use:
+ * <pre>
+ *   try (Writer writer = Files.newBufferedWriter(path)) {
+ *       document.writeJson(writer);
+ *   }
+ *   try (Reader reader = Files.newBufferedReader(path)) {
+ *       Document loaded = Document.readJson(reader);
+ *   }
+ *
+ *   // only materializes the node 'players.069a79f4' with its whole subtree
+ *   try (Reader reader = Files.newBufferedReader(path)) {
+ *       Document partial = Document.readJson(reader, DocumentPath.of("players.069a79f4"));
+ *   }
+ * </pre>
+ * <br>
+ * The written JSON is the same the {@link Document#GSON} or {@link Document#COMPACT_GSON} instance writes, values of
+ * other types than strings, numbers, booleans, collections and maps with string keys are handed to that instance.
+ * Reading keeps the type of numbers: integral numbers become {@link Integer}s or {@link Long}s if they do not fit, numbers
+ * with a fraction or an exponent become {@link Double}s. Since doubles are always written with a fraction, ints, longs
+ * and doubles read back with the type they were written with. Asking a {@link Document} for another {@link Number} class
+ * converts the number. Nested objects become {@link LinkedTreeMap}s like with Gson.
+ * <br>
+ * When subtrees are given, nodes outside of them are skipped on the token level. Nodes on the way to a subtree keep their
+ * data but only the children leading into a subtree. Such a partial {@link Document} must not be written back in place
+ * of the complete one.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public final class DocumentJson {
+
+    private static final int UNKNOWN = 0;
+    private static final int SKIP = 1;
+    private static final int ON_THE_WAY = 2;
+    private static final int ALL = 3;
+
+    private DocumentJson() {
+    }
+
+    /**
+     * @param document the {@link Document} to write
+     * @param out      the {@link JsonWriter} to write to, it is flushed but not closed
+     */
+    public static void write(Document document, JsonWriter out) throws IOException {
+        write(document.getData(), document.getNodes(), out);
+    }
+
+    static void write(Map<String, Object> data, List<Document.DocumentNode> nodes, JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("data");
+        writeData(data, out);
+        out.name("nodes");
+        writeNodes(nodes, out);
+        out.endObject();
+        out.flush();
+    }
+
+    private static void writeNodes(List<Document.DocumentNode> nodes, JsonWriter out) throws IOException {
+        if (nodes == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (Document.DocumentNode node : nodes) {
+            out.beginObject();
+            out.name("nodeKeyPath").value(node.getNodeKeyPath());
+            out.name("nodeData");
+            writeData(node.data(), out);
+            out.name("childNodes");
+            writeNodes(node.children(), out);
+            out.name("nodeKey").value(node.getNodeKey());
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private static void writeData(Map<String, Object> data, JsonWriter out) throws IOException {
+        if (data == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            out.name(entry.getKey());
+            writeValue(entry.getValue(), out);
+        }
+        out.endObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(Object value, JsonWriter out) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof String) {
+            out.value((String) value);
+        } else if (value instanceof Boolean) {
+            out.value((Boolean) value);
+        } else if (value instanceof Double || value instanceof Integer || value instanceof Long || value instanceof Float
+                || value instanceof Short || value instanceof Byte) {
+            out.value((Number) value);
+        } else if (value instanceof int[]) {
+            out.beginArray();
+            for (int element : (int[]) value) {
+                out.value(element);
+            }
+            out.endArray();
+        } else if (value instanceof long[]) {
+            out.beginArray();
+            for (long element : (long[]) value) {
+                out.value(element);
+            }
+            out.endArray();
+        } else if (value instanceof double[]) {
+            out.beginArray();
+            for (double element : (double[]) value) {
+                out.value(element);
+            }
+            out.endArray();
+        } else if (value instanceof Collection) {
+            out.beginArray();
+            for (Object element : (Collection<?>) value) {
+                writeValue(element, out);
+            }
+            out.endArray();
+        } else if (value instanceof Map && hasStringKeys((Map<?, ?>) value)) {
+            writeData((Map<String, Object>) value, out);
+        } else {
+            Document.GSON.toJson(value, value.getClass(), out);
+        }
+    }
+
+    private static boolean hasStringKeys(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param in       the {@link JsonReader} to read from, it is not closed
+     * @param subtrees the node paths to materialize, all nodes are materialized if none are given
+     * @return the read {@link Document} or null if the JSON is null
+     */
+    public static Document read(JsonReader in, DocumentPath... subtrees) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String[] filter = null;
+        if (subtrees.length > 0) {
+            filter = new String[subtrees.length];
+            for (int i = 0; i < subtrees.length; i++) {
+                filter[i] = subtrees[i].toString().toLowerCase(Locale.ROOT);
+            }
+        }
+        Document document = new Document();
+        LinkedHashMap<String, Object> data = document.getData();
+        LinkedList<Document.DocumentNode> nodes = document.getNodes();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "data":
+                    data = readData(in);
+                    break;
+                case "nodes":
+                    nodes = readNodes(in, null, filter);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return Document.restore(data, nodes);
+    }
+
+    private static LinkedList<Document.DocumentNode> readNodes(JsonReader in, String parentPath, String[] filter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        LinkedList<Document.DocumentNode> nodes = new LinkedList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            Document.DocumentNode node = readNode(in, parentPath, filter);
+            if (node != null)
+                nodes.add(node);
+        }
+        in.endArray();
+        return nodes;
+    }
+
+    /**
+     * Reads a node, its data and children are parsed into a {@link JsonElement} first only if they come before the keys
+     * telling whether the node is selected
+     *
+     * @return the node or null if it is outside the selected subtrees
+     */
+    private static Document.DocumentNode readNode(JsonReader in, String parentPath, String[] filter) throws IOException {
+        String nodeKeyPath = null;
+        String nodeKey = null;
+        LinkedHashMap<String, Object> nodeData = null;
+        LinkedList<Document.DocumentNode> childNodes = null;
+        JsonElement bufferedData = null;
+        JsonElement bufferedChildren = null;
+        int selection = filter == null ? ALL : UNKNOWN;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "nodeKeyPath":
+                    nodeKeyPath = nextString(in);
+                    if (selection == UNKNOWN && nodeKeyPath != null)
+                        selection = select(nodeKeyPath, filter);
+                    break;
+                case "nodeKey":
+                    nodeKey = nextString(in);
+                    if (selection == UNKNOWN && nodeKey != null)
+                        selection = select(path(parentPath, nodeKeyPath, nodeKey), filter);
+                    break;
+                case "nodeData":
+                    if (selection == SKIP)
+                        in.skipValue();
+                    else if (selection == UNKNOWN)
+                        bufferedData = JsonParser.parseReader(in);
+                    else
+                        nodeData = readData(in);
+                    break;
+                case "childNodes":
+                    if (selection == SKIP)
+                        in.skipValue();
+                    else if (selection == UNKNOWN)
+                        bufferedChildren = JsonParser.parseReader(in);
+                    else
+                        childNodes = readNodes(in, path(parentPath, nodeKeyPath, nodeKey), selection == ALL ? null : filter);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (selection == UNKNOWN)
+            selection = ALL;
+        if (selection == SKIP)
+            return null;
+        if (bufferedData != null)
+            nodeData = readData(new JsonTreeReader(bufferedData));
+        if (bufferedChildren != null)
+            childNodes = readNodes(new JsonTreeReader(bufferedChildren), path(parentPath, nodeKeyPath, nodeKey), null);
+        Document.DocumentNode node = new Document.DocumentNode(nodeKey, nodeData == null ? new LinkedHashMap<>() : nodeData);
+        node.setNodeKeyPath(nodeKeyPath);
+        if (childNodes != null)
+            node.getChildNodes().addAll(childNodes);
+        return node;
+    }
+
+    private static String path(String parentPath, String nodeKeyPath, String nodeKey) {
+        if (nodeKeyPath != null)
+            return nodeKeyPath;
+        if (nodeKey == null)
+            return parentPath;
+        return parentPath == null ? nodeKey : parentPath + "." + nodeKey;
+    }
+
+    private static int select(String path, String[] filter) {
+        String lowerCasePath = path.toLowerCase(Locale.ROOT);
+        int selection = SKIP;
+        for (String subtree : filter) {
+            if (within(lowerCasePath, subtree))
+                return ALL;
+            if (within(subtree, lowerCasePath))
+                selection = ON_THE_WAY;
+        }
+        return selection;
+    }
+
+    /**
+     * @return true if the path equals the parent path or lies below it
+     */
+    private static boolean within(String path, String parentPath) {
+        return path.startsWith(parentPath) && (path.length() == parentPath.length() || path.charAt(parentPath.length()) == '.');
+    }
+
+    private static LinkedHashMap<String, Object> readData(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        LinkedHashMap<String, Object> data = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            data.put(key, readValue(in));
+        }
+        in.endObject();
+        return data;
+    }
+
+    /**
+     * Reads any JSON value into strings, typed numbers, booleans, lists and maps
+     */
+    static Object readValue(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    list.add(readValue(in));
+                }
+                in.endArray();
+                return list;
+            }
+            case BEGIN_OBJECT: {
+                Map<String, Object> map = new LinkedTreeMap<>();
+                in.beginObject();
+                while (in.hasNext()) {
+                    String key = in.nextName();
+                    map.put(key, readValue(in));
+                }
+                in.endObject();
+                return map;
+            }
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return readNumber(in.nextString());
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected " + in.peek() + " at " + in.getPath());
+        }
+    }
+
+    /**
+     * @param literal the number as written in the JSON
+     * @return an {@link Integer} or {@link Long} for integral numbers, otherwise a {@link Double}
+     */
+    private static Number readNumber(String literal) {
+        boolean integral = literal.length() <= 19;
+        for (int i = 0; integral && i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            integral = (c >= '0' && c <= '9') || (i == 0 && c == '-');
+        }
+        if (integral) {
+            try {
+                long value = Long.parseLong(literal);
+                if (value == (int) value)
+                    return (int) value;
+                return value;
+            } catch (NumberFormatException ignored) {
+                // exceeds the range of a long
+            }
+        }
+        return Double.parseDouble(literal);
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+}
@@ -0,0 +1,132 @@
+package de.idkwhoami.utils.other;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Locale;
+
+/**
+ * A dotted {@link Document} key split into its segments once, so resolving it does not parse any strings.
+ * <br>
+ * How to use:
+ * <pre>
+ *   private static final DocumentPath KILLS = DocumentPath.of("players.stats.kills");
+ *
+ *   int kills = document.getInteger(KILLS);
+ *   document.put(KILLS, kills + 1);
+ * </pre>
+ * <br>
+ * The {@link String} methods of {@link Document} use {@link #of(String)} as well, which caches the compiled paths of
+ * the most recently used keys, so constant keys are only split once. Holding a {@link DocumentPath} in a constant
+ * skips the cache lookup as well. Segments are interned, so the data keys stored through a path share their instances.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public final class DocumentPath {
+
+    private static final Cache<String, DocumentPath> CACHE = CacheBuilder.newBuilder().maximumSize(4096).build();
+
+    private final String path;
+    private final String[] segments;
+    private final String[] lowerCaseSegments;
+
+    private DocumentPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+        this.lowerCaseSegments = new String[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            lowerCaseSegments[i] = segments[i].toLowerCase(Locale.ROOT).intern();
+        }
+    }
+
+    /**
+     * @param path root data key or nodeKey separated by '.'
+     * @return the compiled path, taken from the cache if the same key was compiled recently
+     */
+    public static DocumentPath of(String path) {
+        DocumentPath compiled = CACHE.getIfPresent(path);
+        if (compiled == null) {
+            compiled = compile(path);
+            CACHE.put(path, compiled);
+        }
+        return compiled;
+    }
+
+    private static DocumentPath compile(String path) {
+        int count = 1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '.')
+                count++;
+        }
+        String[] segments = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = path.indexOf('.', start);
+            if (end < 0)
+                end = path.length();
+            segments[i] = path.substring(start, end).intern();
+            start = end + 1;
+        }
+        return new DocumentPath(path, segments);
+    }
+
+    /**
+     * @return count of segments, 1 for a root data key
+     */
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * @return true if the path points into a node instead of the root data layer
+     */
+    public boolean isNested() {
+        return segments.length > 1;
+    }
+
+    public String getSegment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * @return the last segment, the data key within its node
+     */
+    public String getKey() {
+        return segments[segments.length - 1];
+    }
+
+    /**
+     * @param count count of leading segments
+     * @return the leading segments separated by '.'
+     */
+    public String prefix(int count) {
+        if (count >= segments.length)
+            return path;
+        int end = -1;
+        for (int i = 0; i < count; i++) {
+            end = path.indexOf('.', end + 1);
+        }
+        return path.substring(0, end);
+    }
+
+    String getLowerCaseSegment(int index) {
+        return lowerCaseSegments[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof DocumentPath && path.equals(((DocumentPath) o).path));
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
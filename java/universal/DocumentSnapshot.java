@@ -0,0 +1,336 @@
+package de.idkwhoami.utils.other;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable view of a {@link Document} at the moment {@link Document#snapshot()} was called.
+ * <br>
+ * How to use:
+ * <pre>
+ *   DocumentSnapshot snapshot = document.snapshot();
+ *   CompletableFuture.runAsync(() -&gt; {
+ *       try (Writer writer = Files.newBufferedWriter(path)) {
+ *           snapshot.writeJson(writer);
+ *       } catch (IOException e) {
+ *           e.printStackTrace();
+ *       }
+ *   });
+ *   document.put("players.stats.kills", 12); // does not change the snapshot
+ * </pre>
+ * <br>
+ * Taking a snapshot copies nothing, the snapshot and the document share all nodes. Before a node of the document
+ * changes for the first time after the snapshot, it hands its data and child list to the snapshot and continues on
+ * copies of them, so only the changed nodes exist twice and nodes held by the caller stay writable. The document stays
+ * single threaded, but any number of threads may read the snapshot while the document keeps changing.
+ * The nodes returned by a snapshot are read only and throw an {@link IllegalStateException} when they are changed.
+ * <br>
+ * The values themselves are shared as well, mutable values like lists must be replaced instead of changed in place.
+ *
+ * @author IDK_WHO_AM_I
+ * @version 0.0.1
+ */
+public final class DocumentSnapshot {
+
+    private final long generation;
+    private final LinkedHashMap<String, Object> data;
+    private final LinkedList<Document.DocumentNode> nodes;
+    private final Map<Document.DocumentNode, Document.DocumentNode> frozen = new ConcurrentHashMap<>();
+    private volatile DocumentSnapshot next;
+
+    DocumentSnapshot(long generation, LinkedHashMap<String, Object> data, LinkedList<Document.DocumentNode> nodes) {
+        this.generation = generation;
+        this.data = data;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link String} containing the data found at the given key
+     */
+    public String getString(String key) {
+        return getString(DocumentPath.of(key));
+    }
+
+    public String getString(DocumentPath path) {
+        return get(path, String.class);
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Integer} containing the number found at the given key
+     */
+    public Integer getInteger(String key) {
+        return getInteger(DocumentPath.of(key));
+    }
+
+    public Integer getInteger(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.intValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Long} containing the number found at the given key
+     */
+    public Long getLong(String key) {
+        return getLong(DocumentPath.of(key));
+    }
+
+    public Long getLong(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.longValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Double} containing the number found at the given key
+     */
+    public Double getDouble(String key) {
+        return getDouble(DocumentPath.of(key));
+    }
+
+    public Double getDouble(DocumentPath path) {
+        Number value = get(path, Number.class);
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * @param key root data key or nodeKey separated by '.'
+     * @return a {@link Boolean} containing the data found at the given key
+     */
+    public Boolean getBoolean(String key) {
+        return getBoolean(DocumentPath.of(key));
+    }
+
+    public Boolean getBoolean(DocumentPath path) {
+        return get(path, Boolean.class);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return getInt(DocumentPath.of(key), defaultValue);
+    }
+
+    public int getInt(DocumentPath path, int defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.intValue();
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return getLong(DocumentPath.of(key), defaultValue);
+    }
+
+    public long getLong(DocumentPath path, long defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.longValue();
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        return getDouble(DocumentPath.of(key), defaultValue);
+    }
+
+    public double getDouble(DocumentPath path, double defaultValue) {
+        Number value = get(path, Number.class);
+        return value == null ? defaultValue : value.doubleValue();
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return getBoolean(DocumentPath.of(key), defaultValue);
+    }
+
+    public boolean getBoolean(DocumentPath path, boolean defaultValue) {
+        Boolean value = get(path, Boolean.class);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @param key   root data key or nodeKey separated by '.'
+     * @param clazz the {@link Class<T>} the data is casted to
+     * @return the data found at the given key
+     */
+    public <T> T getObject(String key, Class<T> clazz) {
+        return get(DocumentPath.of(key), clazz);
+    }
+
+    public <T> T getObject(DocumentPath path, Class<T> clazz) {
+        return get(path, clazz);
+    }
+
+    private <T> T get(DocumentPath path, Class<T> clazz) {
+        Object value = data.get(path.toString());
+        if (value != null || !path.isNested())
+            return Document.cast(value, clazz);
+        Document.DocumentNode node = resolve(path, path.size() - 1);
+        return node == null ? null : node.get(path.getKey(), clazz);
+    }
+
+    /**
+     * @param key root data key
+     * @return true if the root data layer contains the given key
+     */
+    public boolean contains(String key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * @param nodeKey root nodeKey (contains no separator)
+     * @return true if the root nodes contain the given nodeKey
+     */
+    public boolean existsRootNode(String nodeKey) {
+        return Document.find(nodes, nodeKey) != null;
+    }
+
+    /**
+     * @param nodeKey nodeKey separated by '.'
+     * @return the read only {@link Document.DocumentNode} or null if there is no node at the given key
+     */
+    public Document.DocumentNode getNode(String nodeKey) {
+        return getNode(DocumentPath.of(nodeKey));
+    }
+
+    public Document.DocumentNode getNode(DocumentPath path) {
+        return resolve(path, path.size());
+    }
+
+    /**
+     * Walks the node lists without their indexes, those are built lazily by the thread changing the document
+     */
+    private Document.DocumentNode resolve(DocumentPath path, int depth) {
+        Document.DocumentNode node = view(Document.find(nodes, path.getSegment(0)));
+        for (int i = 1; node != null && i < depth; i++) {
+            node = node.getChildNode(path.getSegment(i));
+        }
+        return node;
+    }
+
+    /**
+     * @return a new mutable {@link Document} containing a copy of the data and node tree of this snapshot
+     */
+    public Document toDocument() {
+        return Document.restore(new LinkedHashMap<>(data), copyOf(views(nodes)));
+    }
+
+    private static LinkedList<Document.DocumentNode> copyOf(List<Document.DocumentNode> nodes) {
+        LinkedList<Document.DocumentNode> copies = new LinkedList<>();
+        for (Document.DocumentNode node : nodes) {
+            LinkedHashMap<String, Object> nodeData = node.data();
+            Document.DocumentNode copy = new Document.DocumentNode(node.getNodeKey(), nodeData == null ? new LinkedHashMap<>() : new LinkedHashMap<>(nodeData));
+            copy.setNodeKeyPath(node.getNodeKeyPath());
+            if (node.children() != null)
+                copy.getChildNodes().addAll(copyOf(node.children()));
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * @return a read only node holding the state the given node of the document had when this snapshot was taken
+     */
+    Document.DocumentNode view(Document.DocumentNode node) {
+        return node == null ? null : node.at(this);
+    }
+
+    LinkedList<Document.DocumentNode> views(List<Document.DocumentNode> nodes) {
+        if (nodes == null)
+            return null;
+        LinkedList<Document.DocumentNode> views = new LinkedList<>();
+        for (Document.DocumentNode node : nodes) {
+            views.add(view(node));
+        }
+        return views;
+    }
+
+    /**
+     * Keeps the state a node of the document had when this snapshot was taken, called before the node changes
+     *
+     * @param node   the node of the document
+     * @param frozen a node holding the data and child list the node hands over
+     */
+    void freeze(Document.DocumentNode node, Document.DocumentNode frozen) {
+        this.frozen.putIfAbsent(node, frozen);
+    }
+
+    /**
+     * A node that did not change until the next snapshot hands its state to that one, so the later snapshots are searched as well
+     *
+     * @return the state the given node had when this snapshot was taken or null if it did not change since
+     */
+    Document.DocumentNode frozen(Document.DocumentNode node) {
+        for (DocumentSnapshot snapshot = this; snapshot != null; snapshot = snapshot.next) {
+            Document.DocumentNode state = snapshot.frozen.get(node);
+            if (state != null)
+                return state;
+        }
+        return null;
+    }
+
+    void setNext(DocumentSnapshot next) {
+        this.next = next;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @see Document#toJson()
+     */
+    public String toJson() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeJson(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * @see Document#writeJson(Writer)
+     */
+    public void writeJson(Writer writer) throws IOException {
+        DocumentJson.write(data, views(nodes), Document.GSON.newJsonWriter(writer));
+    }
+
+    /**
+     * @see Document#toCompactJson()
+     */
+    public String toCompactJson() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeCompactJson(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * @see Document#writeCompactJson(Writer)
+     */
+    public void writeCompactJson(Writer writer) throws IOException {
+        DocumentJson.write(data, views(nodes), Document.COMPACT_GSON.newJsonWriter(writer));
+    }
+
+    /**
+     * @see Document#toBinary()
+     */
+    public byte[] toBinary() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            writeBinary(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @see Document#writeBinary(OutputStream)
+     */
+    public void writeBinary(OutputStream out) throws IOException {
+        DocumentCodec.write(data, views(nodes), out);
+    }
+
+}